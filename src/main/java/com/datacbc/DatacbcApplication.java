@@ -1,5 +1,6 @@
 package com.datacbc;
 
+import com.datacbc.util.CryptoBootstrap;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 
@@ -7,6 +8,8 @@ import org.springframework.boot.autoconfigure.SpringBootApplication;
 public class DatacbcApplication {
 
     public static void main(String[] args) {
+        // 注册加密 Provider 并预热，保证接收请求前签名/验签已经是热的
+        CryptoBootstrap.init();
         SpringApplication.run(DatacbcApplication.class, args);
     }
 
@@ -7,14 +7,15 @@ package com.datacbc.util;
 import lombok.extern.slf4j.Slf4j;
 
 import javax.crypto.*;
+import javax.crypto.spec.GCMParameterSpec;
 import javax.crypto.spec.IvParameterSpec;
 import javax.crypto.spec.SecretKeySpec;
 import java.io.IOException;
 import java.io.Serializable;
+import java.security.GeneralSecurityException;
 import java.security.InvalidAlgorithmParameterException;
 import java.security.InvalidKeyException;
 import java.security.NoSuchAlgorithmException;
-import java.security.SecureRandom;
 import java.util.Base64;
 
 /**
@@ -31,6 +32,25 @@ public class AESUtils {
      * 认证所使用的加密密钥
      */
     public static final String key="ae70dfc4a3d05dda0d48d17584b924b3559d09489cfe935aa68ddb74262abc44";
+    /**
+     * GCM nonce 长度
+     */
+    public static final int GCM_NONCE_LENGTH = 12;
+    /**
+     * GCM 认证标签长度，单位 bit
+     */
+    public static final int GCM_TAG_BITS = 128;
+
+    /**
+     * 线程内复用的 GCM Cipher，每次使用前重新 init
+     */
+    private static final ThreadLocal<Cipher> gcmCipherThreadLocal = ThreadLocal.withInitial(() -> {
+        try {
+            return Cipher.getInstance("AES/GCM/NoPadding");
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Fail to create AES/GCM cipher ! ", e);
+        }
+    });
     /**
      * 加密对象
      * @param algorithm
@@ -113,7 +133,7 @@ public class AESUtils {
      */
     public static SecretKey generateKey(int n) throws NoSuchAlgorithmException {
         KeyGenerator keyGenerator = KeyGenerator.getInstance("AES");
-        keyGenerator.init(n);
+        keyGenerator.init(n, SecureRandomUtils.get());
         SecretKey key = keyGenerator.generateKey();
         return key;
     }
@@ -188,13 +208,62 @@ public class AESUtils {
     }
 
     /**
-     * IV的值是随机的，其大小与加密块相同。 我们可以使用SecureRandom类生成随机IV。
+     * IV的值是随机的，其大小与加密块相同。 使用当前线程的 DRBG 生成随机IV。
      * @return
      */
     public static IvParameterSpec generateIv() {
         byte[] iv = new byte[16];
-        new SecureRandom().nextBytes(iv);
+        SecureRandomUtils.nextBytes(iv);
         return new IvParameterSpec(iv);
     }
 
+    /**
+     * AES-GCM 加密，带认证
+     * 每次使用随机 12 字节 nonce，输出为 nonce + 密文 + 16 字节认证标签
+     * @param plainText 明文
+     * @param key AES 密钥
+     * @param aad 附加认证数据，不加密但参与认证，可以为 null
+     * @return
+     * @throws GeneralSecurityException
+     */
+    public static byte[] encryptGcm(byte[] plainText, SecretKey key, byte[] aad) throws GeneralSecurityException {
+        byte[] nonce = new byte[GCM_NONCE_LENGTH];
+        SecureRandomUtils.nextBytes(nonce);
+        Cipher cipher = gcmCipherThreadLocal.get();
+        cipher.init(Cipher.ENCRYPT_MODE, key, new GCMParameterSpec(GCM_TAG_BITS, nonce));
+        if (aad != null) {
+            cipher.updateAAD(aad);
+        }
+        byte[] output = new byte[GCM_NONCE_LENGTH + cipher.getOutputSize(plainText.length)];
+        System.arraycopy(nonce, 0, output, 0, GCM_NONCE_LENGTH);
+        cipher.doFinal(plainText, 0, plainText.length, output, GCM_NONCE_LENGTH);
+        return output;
+    }
+
+    /**
+     * AES-GCM 解密并校验认证标签
+     * @param input nonce + 密文 + 认证标签
+     * @param offset 起始位置
+     * @param length 长度
+     * @param key AES 密钥
+     * @param aad 附加认证数据，需与加密时一致，可以为 null
+     * @return 明文
+     * @throws GeneralSecurityException 密钥错误或数据被篡改时抛出 AEADBadTagException
+     */
+    public static byte[] decryptGcm(byte[] input, int offset, int length, SecretKey key, byte[] aad) throws GeneralSecurityException {
+        if (length < GCM_NONCE_LENGTH + GCM_TAG_BITS / 8) {
+            throw new AEADBadTagException("input too short");
+        }
+        Cipher cipher = gcmCipherThreadLocal.get();
+        cipher.init(Cipher.DECRYPT_MODE, key, new GCMParameterSpec(GCM_TAG_BITS, input, offset, GCM_NONCE_LENGTH));
+        if (aad != null) {
+            cipher.updateAAD(aad);
+        }
+        return cipher.doFinal(input, offset + GCM_NONCE_LENGTH, length - GCM_NONCE_LENGTH);
+    }
+
+    public static byte[] decryptGcm(byte[] input, SecretKey key, byte[] aad) throws GeneralSecurityException {
+        return decryptGcm(input, 0, input.length, key, aad);
+    }
+
 }
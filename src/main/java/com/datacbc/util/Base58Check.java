@@ -7,13 +7,15 @@ package com.datacbc.util;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.codec.digest.DigestUtils;
 import org.apache.commons.lang3.StringUtils;
+import org.bouncycastle.crypto.digests.SHA256Digest;
 
-import java.io.ByteArrayOutputStream;
-import java.math.BigInteger;
+import java.nio.ByteBuffer;
 import java.util.Arrays;
 
 /**
  * Base58 转化工具
+ * 编解码不使用 BigInteger：编码时把数据按 4 字节一组累加到 58^5 进制的 int 数组中，
+ * 解码时把字符按 5 个一组累加到 2^32 进制的 int 数组中，每轮乘法处理的位数是逐字节/逐字符方式的 4~5 倍
  *
  * @author chenhx
  * @version Base58Check.java, v 0.1 2018-10-16 下午 6:08
@@ -24,7 +26,57 @@ public final class Base58Check {
      * 去掉了一些容易错的字符
      */
     private static final String ALPHABET = "123456789ABCDEFGHJKLMNPQRSTUVWXYZabcdefghijkmnopqrstuvwxyz";
-    private static final BigInteger ALPHABET_SIZE = BigInteger.valueOf(ALPHABET.length());
+    private static final char[] ALPHABET_CHARS = ALPHABET.toCharArray();
+    /**
+     * ASCII 字符到 Base58 数字的反查表，非法字符为 -1
+     */
+    private static final byte[] INDEXES = new byte[128];
+    /**
+     * 每个 58 进制分组包含的数字个数
+     */
+    private static final int GROUP_DIGITS = 5;
+    /**
+     * 58 的 0~5 次方，58^5 < 2^30
+     */
+    private static final int[] POW58 = {1, 58, 58 * 58, 58 * 58 * 58, 58 * 58 * 58 * 58, 58 * 58 * 58 * 58 * 58};
+    private static final int GROUP_BASE = POW58[GROUP_DIGITS];
+
+    /**
+     * 线程内复用的大数分组缓冲区
+     */
+    private static final ThreadLocal<int[]> limbsThreadLocal = ThreadLocal.withInitial(() -> new int[16]);
+    /**
+     * 钱包地址：版本号(1) + 公钥hash(20) + 校验码(4)
+     */
+    private static final int ADDRESS_BYTES = 25;
+    private static final byte ADDRESS_VERSION = 0;
+    /**
+     * 钱包地址字符数范围，超出范围的输入不做解码直接拒绝
+     */
+    private static final int MIN_ADDRESS_CHARS = 25;
+    private static final int MAX_ADDRESS_CHARS = 35;
+
+    /**
+     * 线程内复用的摘要对象，用于计算校验码
+     */
+    private static final ThreadLocal<SHA256Digest> sha256ThreadLocal = ThreadLocal.withInitial(SHA256Digest::new);
+    private static final ThreadLocal<byte[]> hashThreadLocal = ThreadLocal.withInitial(() -> new byte[32]);
+    /**
+     * 线程内复用的解码缓冲区
+     */
+    private static final ThreadLocal<byte[]> decodeBufferThreadLocal = ThreadLocal.withInitial(() -> new byte[64]);
+
+    /**
+     * 线程内复用的字符缓冲区，用于输出到 byte[]/ByteBuffer
+     */
+    private static final ThreadLocal<char[]> charsThreadLocal = ThreadLocal.withInitial(() -> new char[64]);
+
+    static {
+        Arrays.fill(INDEXES, (byte) -1);
+        for (int i = 0; i < ALPHABET_CHARS.length; i++) {
+            INDEXES[ALPHABET_CHARS[i]] = (byte) i;
+        }
+    }
 
 
     private Base58Check() {
@@ -47,20 +99,133 @@ public final class Base58Check {
      * @return
      */
     public static String rawBytesToBase58(byte[] data) {
-        // Convert to base-58 string
-        StringBuilder sb = new StringBuilder();
-        BigInteger num = new BigInteger(1, data);
-        while (num.signum() != 0) {
-            BigInteger[] quotrem = num.divideAndRemainder(ALPHABET_SIZE);
-            sb.append(ALPHABET.charAt(quotrem[1].intValue()));
-            num = quotrem[0];
+        char[] chars = chars(maxEncodedLength(data.length));
+        int length = rawBytesToBase58(data, 0, data.length, chars, 0);
+        return new String(chars, 0, length);
+    }
+
+    /**
+     * 转化为 Base58 字符，直接写入调用方提供的字符数组
+     *
+     * @param data 原始数据
+     * @param offset 数据起始位置
+     * @param length 数据长度
+     * @param out 输出字符数组，从 outOffset 开始至少需要 maxEncodedLength(length) 个字符的空间
+     * @param outOffset 输出起始位置
+     * @return 写入的字符数
+     */
+    public static int rawBytesToBase58(byte[] data, int offset, int length, char[] out, int outOffset) {
+        int end = offset + length;
+        int zeros = 0;
+        while (zeros < length && data[offset + zeros] == 0) {
+            zeros++;
+        }
+        // 按 4 字节一组累加到 58^5 进制的小端分组中，每组小于 2^30，乘以 2^32 不会溢出 long
+        int[] limbs = limbs(length * 8 / 29 + 2);
+        int limbCount = 0;
+        int i = offset + zeros;
+        int take = (end - i) & 3;
+        if (take == 0) {
+            take = 4;
         }
+        while (i < end) {
+            long carry = 0;
+            for (int k = 0; k < take; k++) {
+                carry = (carry << 8) | (data[i++] & 0xFF);
+            }
+            int shift = take * 8;
+            for (int j = 0; j < limbCount; j++) {
+                long value = ((long) limbs[j] << shift) + carry;
+                limbs[j] = (int) (value % GROUP_BASE);
+                carry = value / GROUP_BASE;
+            }
+            while (carry != 0) {
+                limbs[limbCount++] = (int) (carry % GROUP_BASE);
+                carry /= GROUP_BASE;
+            }
+            take = 4;
+        }
+        // 最高分组不补前导 '1'，其余分组固定 5 位
+        int digits = 0;
+        if (limbCount > 0) {
+            for (int top = limbs[limbCount - 1]; top != 0; top /= 58) {
+                digits++;
+            }
+            digits += (limbCount - 1) * GROUP_DIGITS;
+        }
+        int total = zeros + digits;
+        if (out.length - outOffset < total) {
+            throw new IllegalArgumentException("output buffer too small");
+        }
+        Arrays.fill(out, outOffset, outOffset + zeros, ALPHABET_CHARS[0]);
+        int pos = outOffset + total;
+        for (int j = 0; j < limbCount - 1; j++) {
+            int limb = limbs[j];
+            for (int k = 0; k < GROUP_DIGITS; k++) {
+                out[--pos] = ALPHABET_CHARS[limb % 58];
+                limb /= 58;
+            }
+        }
+        if (limbCount > 0) {
+            for (int top = limbs[limbCount - 1]; top != 0; top /= 58) {
+                out[--pos] = ALPHABET_CHARS[top % 58];
+            }
+        }
+        return total;
+    }
+
+    /**
+     * 转化为 Base58 字符的 ASCII 字节，直接写入调用方提供的字节数组
+     *
+     * @param data 原始数据
+     * @param offset 数据起始位置
+     * @param length 数据长度
+     * @param out 输出字节数组
+     * @param outOffset 输出起始位置
+     * @return 写入的字节数
+     */
+    public static int rawBytesToBase58(byte[] data, int offset, int length, byte[] out, int outOffset) {
+        char[] chars = chars(maxEncodedLength(length));
+        int total = rawBytesToBase58(data, offset, length, chars, 0);
+        if (out.length - outOffset < total) {
+            throw new IllegalArgumentException("output buffer too small");
+        }
+        for (int i = 0; i < total; i++) {
+            out[outOffset + i] = (byte) chars[i];
+        }
+        return total;
+    }
 
-        // Add '1' characters for leading 0-value bytes
-        for (int i = 0; i < data.length && data[i] == 0; i++) {
-            sb.append(ALPHABET.charAt(0));
+    /**
+     * 转化为 Base58 字符的 ASCII 字节，写入 ByteBuffer 当前位置并移动 position
+     *
+     * @param data 原始数据
+     * @param offset 数据起始位置
+     * @param length 数据长度
+     * @param out 输出缓冲区
+     * @return 写入的字节数
+     */
+    public static int rawBytesToBase58(byte[] data, int offset, int length, ByteBuffer out) {
+        char[] chars = chars(maxEncodedLength(length));
+        int total = rawBytesToBase58(data, offset, length, chars, 0);
+        if (out.remaining() < total) {
+            throw new IllegalArgumentException("output buffer too small");
         }
-        return sb.reverse().toString();
+        for (int i = 0; i < total; i++) {
+            out.put((byte) chars[i]);
+        }
+        return total;
+    }
+
+    /**
+     * 指定长度的数据转为 Base58 后的最大字符数
+     *
+     * @param length 数据长度
+     * @return
+     */
+    public static int maxEncodedLength(int length) {
+        // log(256) / log(58) ≈ 1.366
+        return length * 138 / 100 + 1;
     }
 
 
@@ -73,16 +238,10 @@ public final class Base58Check {
      * @return
      */
     static byte[] addCheckHash(byte[] data) {
-        try {
-            byte[] hash = Arrays.copyOf(doubleHash(data), 4);
-            ByteArrayOutputStream buf = new ByteArrayOutputStream();
-            buf.write(data);
-            buf.write(hash);
-            return buf.toByteArray();
-        } catch (Exception e) {
-            log.error("添加校验码并返回待有校验码的原生数据异常",e);
-            throw new AssertionError("添加校验码并返回待有校验码的原生数据异常");
-        }
+        byte[] hash = doubleHash(data);
+        byte[] concat = Arrays.copyOf(data, data.length + 4);
+        System.arraycopy(hash, 0, concat, data.length, 4);
+        return concat;
     }
 
     /**
@@ -97,13 +256,73 @@ public final class Base58Check {
             throw new IllegalArgumentException("address is empty ");
         }
         byte[] concat = base58ToRawBytes(address);
-        byte[] data = Arrays.copyOf(concat, concat.length - 4);
-        byte[] hash = Arrays.copyOfRange(concat, concat.length - 4, concat.length);
-        byte[] rehash = Arrays.copyOf(doubleHash(data), 4);
-        if (!Arrays.equals(rehash, hash)) {
+        if (concat.length < 4 || !checksumMatches(concat, concat.length - 4)) {
             throw new IllegalArgumentException("Checksum mismatch");
         }
-        return data;
+        return Arrays.copyOf(concat, concat.length - 4);
+    }
+
+    /**
+     * 校验钱包地址：字符、长度、版本号与校验码，不抛异常
+     * 非法字符、长度或版本号会在计算校验码之前被拒绝
+     *
+     * @param address 钱包地址
+     * @return
+     */
+    public static boolean isValidAddress(CharSequence address) {
+        if (address == null || address.length() < MIN_ADDRESS_CHARS || address.length() > MAX_ADDRESS_CHARS) {
+            return false;
+        }
+        // 版本号为 0，编码后的第一个字符一定是 '1'
+        if (address.charAt(0) != ALPHABET_CHARS[0]) {
+            return false;
+        }
+        byte[] buffer = decodeBuffer(MAX_ADDRESS_CHARS);
+        int length = decode(address, buffer, 0);
+        if (length != ADDRESS_BYTES || buffer[0] != ADDRESS_VERSION) {
+            return false;
+        }
+        return checksumMatches(buffer, ADDRESS_BYTES - 4);
+    }
+
+    /**
+     * 将 Base58Check 字符串解码到调用方提供的字节数组，并校验其校验码，不抛异常
+     * 写入的数据带有版本号，但不带有校验码
+     *
+     * @param s Base58Check 字符串
+     * @param out 输出字节数组
+     * @return 写入的字节数，字符非法、校验码错误或 out 空间不足时返回 -1
+     */
+    public static int tryDecode(CharSequence s, byte[] out) {
+        if (s == null || s.length() == 0) {
+            return -1;
+        }
+        byte[] buffer = decodeBuffer(s.length());
+        int length = decode(s, buffer, 0);
+        if (length < 4 || length - 4 > out.length || !checksumMatches(buffer, length - 4)) {
+            return -1;
+        }
+        System.arraycopy(buffer, 0, out, 0, length - 4);
+        return length - 4;
+    }
+
+    /**
+     * 校验 data[0, length) 的双重 SHA-256 前 4 字节是否与 data[length, length + 4) 一致
+     * 使用线程内复用的摘要对象
+     *
+     * @param data 数据 + 校验码
+     * @param length 数据长度
+     * @return
+     */
+    private static boolean checksumMatches(byte[] data, int length) {
+        SHA256Digest digest = sha256ThreadLocal.get();
+        byte[] hash = hashThreadLocal.get();
+        digest.update(data, 0, length);
+        digest.doFinal(hash, 0);
+        digest.update(hash, 0, hash.length);
+        digest.doFinal(hash, 0);
+        return hash[0] == data[length] && hash[1] == data[length + 1]
+                && hash[2] == data[length + 2] && hash[3] == data[length + 3];
     }
 
 
@@ -116,33 +335,126 @@ public final class Base58Check {
      * @return
      */
     static byte[] base58ToRawBytes(String s) {
-        // Parse base-58 string
-        BigInteger num = BigInteger.ZERO;
-        for (int i = 0; i < s.length(); i++) {
-            num = num.multiply(ALPHABET_SIZE);
-            int digit = ALPHABET.indexOf(s.charAt(i));
-            if (digit == -1) {
-                throw new IllegalArgumentException("Invalid character for Base58Check");
+        // 解码结果的字节数不会超过字符数
+        byte[] out = new byte[s.length()];
+        int length = base58ToRawBytes(s, out, 0);
+        return length == out.length ? out : Arrays.copyOf(out, length);
+    }
+
+    /**
+     * 将 Base58 字符串解码，直接写入调用方提供的字节数组
+     *
+     * @param s Base58 字符串
+     * @param out 输出字节数组，从 outOffset 开始需要 s.length() 个字节的空间即可保证足够
+     * @param outOffset 输出起始位置
+     * @return 写入的字节数
+     */
+    public static int base58ToRawBytes(CharSequence s, byte[] out, int outOffset) {
+        int length = decode(s, out, outOffset);
+        if (length == INVALID_CHARACTER) {
+            throw new IllegalArgumentException("Invalid character for Base58Check");
+        }
+        if (length == BUFFER_TOO_SMALL) {
+            throw new IllegalArgumentException("output buffer too small");
+        }
+        return length;
+    }
+
+    /**
+     * 将 Base58 字符串解码，写入 ByteBuffer 当前位置并移动 position
+     *
+     * @param s Base58 字符串
+     * @param out 输出缓冲区
+     * @return 写入的字节数
+     */
+    public static int base58ToRawBytes(CharSequence s, ByteBuffer out) {
+        int length;
+        if (out.hasArray() && out.remaining() >= s.length()) {
+            // 剩余空间足够时直接写入底层数组，解码结果不会超过字符数
+            length = base58ToRawBytes(s, out.array(), out.arrayOffset() + out.position());
+            out.position(out.position() + length);
+            return length;
+        }
+        byte[] bytes = new byte[s.length()];
+        length = base58ToRawBytes(s, bytes, 0);
+        if (length > out.remaining()) {
+            throw new IllegalArgumentException("output buffer too small");
+        }
+        out.put(bytes, 0, length);
+        return length;
+    }
+
+    /**
+     * 解码失败：非法字符
+     */
+    static final int INVALID_CHARACTER = -1;
+    /**
+     * 解码失败：输出空间不足
+     */
+    static final int BUFFER_TOO_SMALL = -2;
+
+    /**
+     * 解码核心逻辑，不抛异常
+     *
+     * @param s Base58 字符串
+     * @param out 输出字节数组
+     * @param outOffset 输出起始位置
+     * @return 写入的字节数；INVALID_CHARACTER 或 BUFFER_TOO_SMALL 表示失败
+     */
+    static int decode(CharSequence s, byte[] out, int outOffset) {
+        int length = s.length();
+        int zeros = 0;
+        while (zeros < length && s.charAt(zeros) == ALPHABET_CHARS[0]) {
+            zeros++;
+        }
+        // 按 5 个字符一组累加到 2^32 进制的小端分组中，58^5 < 2^30，乘积不会溢出 long
+        int[] words = limbs(length * 733 / 4000 + 2);
+        int wordCount = 0;
+        int i = zeros;
+        int take = (length - i) % GROUP_DIGITS;
+        if (take == 0) {
+            take = GROUP_DIGITS;
+        }
+        while (i < length) {
+            long carry = 0;
+            for (int k = 0; k < take; k++) {
+                char c = s.charAt(i++);
+                int digit = c < 128 ? INDEXES[c] : -1;
+                if (digit < 0) {
+                    return INVALID_CHARACTER;
+                }
+                carry = carry * 58 + digit;
+            }
+            long multiplier = POW58[take];
+            for (int j = 0; j < wordCount; j++) {
+                long value = (words[j] & 0xFFFFFFFFL) * multiplier + carry;
+                words[j] = (int) value;
+                carry = value >>> 32;
             }
-            num = num.add(BigInteger.valueOf(digit));
-        }
-        // Strip possible leading zero due to mandatory sign bit
-        byte[] b = num.toByteArray();
-        if (b[0] == 0) {
-            b = Arrays.copyOfRange(b, 1, b.length);
-        }
-        try {
-            // Convert leading '1' characters to leading 0-value bytes
-            ByteArrayOutputStream buf = new ByteArrayOutputStream();
-            for (int i = 0; i < s.length() && s.charAt(i) == ALPHABET.charAt(0); i++) {
-                buf.write(0);
+            while (carry != 0) {
+                words[wordCount++] = (int) carry;
+                carry >>>= 32;
+            }
+            take = GROUP_DIGITS;
+        }
+        int numberBytes = 0;
+        if (wordCount > 0) {
+            numberBytes = (wordCount - 1) * 4 + 4 - Integer.numberOfLeadingZeros(words[wordCount - 1]) / 8;
+        }
+        int total = zeros + numberBytes;
+        if (out.length - outOffset < total) {
+            return BUFFER_TOO_SMALL;
+        }
+        Arrays.fill(out, outOffset, outOffset + zeros, (byte) 0);
+        int pos = outOffset + total;
+        for (int j = 0; j < wordCount; j++) {
+            int word = words[j];
+            for (int k = 0; k < 4 && pos > outOffset + zeros; k++) {
+                out[--pos] = (byte) word;
+                word >>>= 8;
             }
-            buf.write(b);
-            return buf.toByteArray();
-        } catch (Exception e) {
-            log.error("将 Base58Check 字符串反转为 byte 数组异常",e);
-            throw new AssertionError("将 Base58Check 字符串反转为 byte 数组异常");
         }
+        return total;
     }
 
     /**
@@ -155,4 +467,31 @@ public final class Base58Check {
         return DigestUtils.sha256(DigestUtils.sha256(data));
     }
 
+    private static int[] limbs(int size) {
+        int[] limbs = limbsThreadLocal.get();
+        if (limbs.length < size) {
+            limbs = new int[Math.max(size, limbs.length * 2)];
+            limbsThreadLocal.set(limbs);
+        }
+        return limbs;
+    }
+
+    private static byte[] decodeBuffer(int size) {
+        byte[] buffer = decodeBufferThreadLocal.get();
+        if (buffer.length < size) {
+            buffer = new byte[Math.max(size, buffer.length * 2)];
+            decodeBufferThreadLocal.set(buffer);
+        }
+        return buffer;
+    }
+
+    private static char[] chars(int size) {
+        char[] chars = charsThreadLocal.get();
+        if (chars.length < size) {
+            chars = new char[Math.max(size, chars.length * 2)];
+            charsThreadLocal.set(chars);
+        }
+        return chars;
+    }
+
 }
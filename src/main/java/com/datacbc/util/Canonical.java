@@ -0,0 +1,23 @@
+/*
+ * chenhx
+ * Copyright (C) 2013-2022 All Rights Reserved.
+ */
+package com.datacbc.util;
+
+/**
+ * @author chenhx
+ * @version 0.0.1
+ * @className Canonical.java
+ * @date 2026-10-18 10:22
+ * @description 可签名类型的规范编码
+ * 同一个值在任何 JVM、任何时候写出的字节都完全相同，可以直接用于计算数据ID和签名；
+ * 实现类只通过 CanonicalWriter 写出字段，字段顺序固定，集合按确定的顺序写出
+ */
+public interface Canonical {
+
+    /**
+     * 按固定顺序写出所有参与签名的字段
+     * @param writer
+     */
+    void writeCanonical(CanonicalWriter writer);
+}
@@ -0,0 +1,430 @@
+/*
+ * chenhx
+ * Copyright (C) 2013-2022 All Rights Reserved.
+ */
+package com.datacbc.util;
+
+import org.apache.commons.codec.digest.DigestUtils;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.Signature;
+import java.security.SignatureException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.SortedSet;
+
+/**
+ * @author chenhx
+ * @version 0.0.1
+ * @className CanonicalWriter.java
+ * @date 2026-10-18 10:22
+ * @description 规范编码写出器
+ * 编码规则：定长整数大端；varint 为无符号 LEB128 最短形式；变长字节、字符串（UTF-8）、集合先写 varint 长度；
+ * Map 和 Set 按元素自然顺序写出，与 HashMap 等的迭代顺序无关；不支持 null。
+ * 字节直接写入 MessageDigest、Signature 或输出流，只经过一个小的定长缓冲区，不生成完整的 byte[]。
+ * 非线程安全
+ */
+public final class CanonicalWriter {
+    /**
+     * 合并小块写入的缓冲区大小，满了或 finish 时写入目标
+     */
+    private static final int BUFFER_SIZE = 512;
+    private static final int HASH_LENGTH = 32;
+
+    private static final ThreadLocal<CanonicalWriter> sha256ThreadLocal =
+            ThreadLocal.withInitial(() -> new CanonicalWriter(new DigestSink(DigestUtils.getSha256Digest())));
+    private static final ThreadLocal<CanonicalWriter> sha512ThreadLocal =
+            ThreadLocal.withInitial(() -> new CanonicalWriter(new DigestSink(DigestUtils.getSha512Digest())));
+
+    private final Sink sink;
+    private final byte[] buffer = new byte[BUFFER_SIZE];
+    private int position;
+    private long total;
+    /**
+     * 线程内复用的写出器正在使用，嵌套调用（如编码过程中计算子对象的ID）时改用新的写出器
+     */
+    private boolean inUse;
+
+    private CanonicalWriter(Sink sink) {
+        this.sink = sink;
+    }
+
+    /**
+     * 写入 MessageDigest，写完后调用 finish 再取摘要
+     * @param digest
+     * @return
+     */
+    public static CanonicalWriter of(MessageDigest digest) {
+        return new CanonicalWriter(new DigestSink(digest));
+    }
+
+    /**
+     * 写入已初始化的 Signature，写完后调用 finish 再签名或验签
+     * @param signature
+     * @return
+     */
+    public static CanonicalWriter of(Signature signature) {
+        return new CanonicalWriter(new SignatureSink(signature));
+    }
+
+    /**
+     * 写入输出流，写完后调用 finish，不关闭流
+     * @param outputStream
+     * @return
+     */
+    public static CanonicalWriter of(OutputStream outputStream) {
+        return new CanonicalWriter(new OutputStreamSink(outputStream));
+    }
+
+    /**
+     * 数据ID：规范编码的双重 SHA-256，与 ECDSAUtils.signWithId(toBytes(value), ...) 中的ID一致
+     * 编码直接写入摘要，不生成中间数组
+     * @param value
+     * @return 32 字节
+     */
+    public static byte[] id(Canonical value) {
+        byte[] first = digest(sha256ThreadLocal, value);
+        return DigestUtils.sha256(first);
+    }
+
+    /**
+     * 规范编码的 SHA-512，与 ECDSAUtils.sign(toBytes(value), ...) 签名时使用的摘要一致
+     * @param value
+     * @return 64 字节
+     */
+    public static byte[] sha512(Canonical value) {
+        return digest(sha512ThreadLocal, value);
+    }
+
+    /**
+     * 规范编码的字节，用于存储或传输；计算ID和签名时使用 id/sha512，不需要先生成字节
+     * @param value
+     * @return
+     */
+    public static byte[] toBytes(Canonical value) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(BUFFER_SIZE);
+        CanonicalWriter writer = of(out);
+        writer.writeCanonical(value);
+        writer.finish();
+        return out.toByteArray();
+    }
+
+    private static byte[] digest(ThreadLocal<CanonicalWriter> threadLocal, Canonical value) {
+        CanonicalWriter writer = threadLocal.get();
+        if (writer.inUse) {
+            MessageDigest digest = ((DigestSink) writer.sink).newDigest();
+            writer = new CanonicalWriter(new DigestSink(digest));
+        }
+        writer.inUse = true;
+        try {
+            writer.writeCanonical(value);
+            writer.finish();
+            return ((DigestSink) writer.sink).digest.digest();
+        } finally {
+            writer.reset();
+            writer.inUse = false;
+        }
+    }
+
+    public void writeByte(int value) {
+        require(1);
+        buffer[position++] = (byte) value;
+    }
+
+    public void writeBoolean(boolean value) {
+        writeByte(value ? 1 : 0);
+    }
+
+    /**
+     * 4 字节大端
+     * @param value
+     */
+    public void writeInt(int value) {
+        require(4);
+        buffer[position++] = (byte) (value >>> 24);
+        buffer[position++] = (byte) (value >>> 16);
+        buffer[position++] = (byte) (value >>> 8);
+        buffer[position++] = (byte) value;
+    }
+
+    /**
+     * 8 字节大端
+     * @param value
+     */
+    public void writeLong(long value) {
+        writeInt((int) (value >>> 32));
+        writeInt((int) value);
+    }
+
+    /**
+     * 无符号 varint，最短编码，1-10 字节
+     * @param value 按无符号处理
+     */
+    public void writeVarLong(long value) {
+        require(10);
+        while ((value & ~0x7FL) != 0) {
+            buffer[position++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        buffer[position++] = (byte) value;
+    }
+
+    /**
+     * 非负 varint，用于长度、数量等
+     * @param value
+     */
+    public void writeVarInt(int value) {
+        if (value < 0) {
+            throw new IllegalArgumentException("negative varint: " + value);
+        }
+        writeVarLong(value);
+    }
+
+    /**
+     * 定长字节，不写长度，长度由类型约定
+     * @param bytes
+     */
+    public void writeBytes(byte[] bytes) {
+        writeBytes(bytes, 0, checkNotNull(bytes).length);
+    }
+
+    /**
+     * 定长字节，不写长度
+     * @param bytes
+     * @param offset
+     * @param length
+     */
+    public void writeBytes(byte[] bytes, int offset, int length) {
+        if (length <= BUFFER_SIZE - position) {
+            System.arraycopy(bytes, offset, buffer, position, length);
+            position += length;
+            return;
+        }
+        // 大块数据不经过缓冲区，直接写入目标
+        flush();
+        sink.update(bytes, offset, length);
+        total += length;
+    }
+
+    /**
+     * 变长字节：varint 长度 + 内容
+     * @param bytes
+     */
+    public void writeVarBytes(byte[] bytes) {
+        writeVarInt(checkNotNull(bytes).length);
+        writeBytes(bytes);
+    }
+
+    /**
+     * 32 字节 hash，定长，不写长度
+     * @param hash
+     */
+    public void writeHash(byte[] hash) {
+        if (checkNotNull(hash).length != HASH_LENGTH) {
+            throw new IllegalArgumentException("hash must be " + HASH_LENGTH + " bytes");
+        }
+        writeBytes(hash);
+    }
+
+    /**
+     * 字符串：UTF-8 编码后按变长字节写出
+     * @param value
+     */
+    public void writeString(String value) {
+        writeVarBytes(checkNotNull(value).getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * 嵌套的规范编码对象，不写长度
+     * @param value
+     */
+    public void writeCanonical(Canonical value) {
+        checkNotNull(value).writeCanonical(this);
+    }
+
+    /**
+     * 列表：varint 数量 + 按迭代顺序写出的元素
+     * @param values 有序集合，如 List
+     * @param encoder 元素编码
+     */
+    public <T> void writeList(Collection<? extends T> values, Encoder<? super T> encoder) {
+        writeVarInt(checkNotNull(values).size());
+        for (T value : values) {
+            encoder.write(this, checkNotNull(value));
+        }
+    }
+
+    /**
+     * 集合：varint 数量 + 按自然顺序写出的元素，与集合的迭代顺序无关
+     * @param values
+     * @param encoder 元素编码
+     */
+    public <T extends Comparable<? super T>> void writeSet(Collection<? extends T> values, Encoder<? super T> encoder) {
+        writeVarInt(checkNotNull(values).size());
+        if (values instanceof SortedSet && ((SortedSet<?>) values).comparator() == null) {
+            for (T value : values) {
+                encoder.write(this, checkNotNull(value));
+            }
+            return;
+        }
+        List<T> sorted = new ArrayList<>(values);
+        sorted.sort(null);
+        for (T value : sorted) {
+            encoder.write(this, checkNotNull(value));
+        }
+    }
+
+    /**
+     * Map：varint 数量 + 按 key 自然顺序写出的 key、value，与 Map 的迭代顺序无关
+     * @param map
+     * @param keyEncoder
+     * @param valueEncoder
+     */
+    public <K extends Comparable<? super K>, V> void writeMap(Map<K, ? extends V> map, Encoder<? super K> keyEncoder,
+                                                             Encoder<? super V> valueEncoder) {
+        writeVarInt(checkNotNull(map).size());
+        if (map instanceof SortedMap && ((SortedMap<?, ?>) map).comparator() == null) {
+            for (Map.Entry<K, ? extends V> entry : map.entrySet()) {
+                keyEncoder.write(this, checkNotNull(entry.getKey()));
+                valueEncoder.write(this, checkNotNull(entry.getValue()));
+            }
+            return;
+        }
+        List<Map.Entry<K, ? extends V>> entries = new ArrayList<>(map.entrySet());
+        entries.sort((a, b) -> a.getKey().compareTo(b.getKey()));
+        for (Map.Entry<K, ? extends V> entry : entries) {
+            keyEncoder.write(this, checkNotNull(entry.getKey()));
+            valueEncoder.write(this, checkNotNull(entry.getValue()));
+        }
+    }
+
+    /**
+     * 把缓冲区中剩余的字节写入目标，取摘要、签名或读取输出前必须调用
+     */
+    public void finish() {
+        flush();
+    }
+
+    /**
+     * 已写出的字节数
+     * @return
+     */
+    public long size() {
+        return total + position;
+    }
+
+    private void require(int length) {
+        if (BUFFER_SIZE - position < length) {
+            flush();
+        }
+    }
+
+    private void flush() {
+        if (position > 0) {
+            sink.update(buffer, 0, position);
+            total += position;
+            position = 0;
+        }
+    }
+
+    private void reset() {
+        position = 0;
+        total = 0;
+        if (sink instanceof DigestSink) {
+            ((DigestSink) sink).digest.reset();
+        }
+    }
+
+    private static <T> T checkNotNull(T value) {
+        if (value == null) {
+            throw new IllegalArgumentException("canonical encoding does not support null");
+        }
+        return value;
+    }
+
+    /**
+     * 元素编码
+     */
+    @FunctionalInterface
+    public interface Encoder<T> {
+        void write(CanonicalWriter writer, T value);
+    }
+
+    /**
+     * 常用的元素编码
+     */
+    public static final Encoder<Canonical> CANONICAL = CanonicalWriter::writeCanonical;
+    public static final Encoder<String> STRING = CanonicalWriter::writeString;
+    public static final Encoder<Long> VAR_LONG = CanonicalWriter::writeVarLong;
+    public static final Encoder<byte[]> VAR_BYTES = CanonicalWriter::writeVarBytes;
+    public static final Encoder<byte[]> HASH = CanonicalWriter::writeHash;
+
+    private interface Sink {
+        void update(byte[] bytes, int offset, int length);
+    }
+
+    private static final class DigestSink implements Sink {
+        private final MessageDigest digest;
+
+        DigestSink(MessageDigest digest) {
+            this.digest = digest;
+        }
+
+        MessageDigest newDigest() {
+            try {
+                return MessageDigest.getInstance(digest.getAlgorithm());
+            } catch (NoSuchAlgorithmException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+
+        @Override
+        public void update(byte[] bytes, int offset, int length) {
+            digest.update(bytes, offset, length);
+        }
+    }
+
+    private static final class SignatureSink implements Sink {
+        private final Signature signature;
+
+        SignatureSink(Signature signature) {
+            this.signature = signature;
+        }
+
+        @Override
+        public void update(byte[] bytes, int offset, int length) {
+            try {
+                signature.update(bytes, offset, length);
+            } catch (SignatureException e) {
+                // 只在 Signature 未初始化时出现
+                throw new IllegalStateException(e);
+            }
+        }
+    }
+
+    private static final class OutputStreamSink implements Sink {
+        private final OutputStream outputStream;
+
+        OutputStreamSink(OutputStream outputStream) {
+            this.outputStream = outputStream;
+        }
+
+        @Override
+        public void update(byte[] bytes, int offset, int length) {
+            try {
+                outputStream.write(bytes, offset, length);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+}
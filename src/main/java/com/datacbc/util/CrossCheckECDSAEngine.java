@@ -0,0 +1,90 @@
+/*
+ * chenhx
+ * Copyright (C) 2013-2022 All Rights Reserved.
+ */
+package com.datacbc.util;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.math.BigInteger;
+import java.security.GeneralSecurityException;
+import java.security.PrivateKey;
+
+/**
+ * @author chenhx
+ * @version 0.0.1
+ * @className CrossCheckECDSAEngine.java
+ * @date 2026-10-18 09:49
+ * @description 交叉校验引擎：签名与验签同时交给两个引擎执行并比较结果，用于上线新引擎前的对比验证
+ * 结果以参照引擎为准，不一致时记录错误日志
+ */
+@Slf4j
+public class CrossCheckECDSAEngine implements ECDSAEngine {
+
+    public static final String NAME = "crosscheck";
+
+    /**
+     * 被验证的引擎
+     */
+    private final ECDSAEngine candidate;
+    /**
+     * 参照引擎
+     */
+    private final ECDSAEngine reference;
+
+    public CrossCheckECDSAEngine(ECDSAEngine candidate, ECDSAEngine reference) {
+        this.candidate = candidate;
+        this.reference = reference;
+    }
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    @Override
+    public byte[] signDigest(byte[] digest, byte[] privateKey) throws GeneralSecurityException {
+        byte[] sign = candidate.signDigest(digest, privateKey);
+        if (!referenceAccepts(digest, Secp256k1Engine.decodePrivateKey(privateKey), sign)) {
+            return reference.signDigest(digest, privateKey);
+        }
+        return sign;
+    }
+
+    @Override
+    public byte[] signDigest(byte[] digest, PrivateKey privateKey) throws GeneralSecurityException {
+        byte[] sign = candidate.signDigest(digest, privateKey);
+        if (!referenceAccepts(digest, Secp256k1Engine.privateScalar(privateKey), sign)) {
+            return reference.signDigest(digest, privateKey);
+        }
+        return sign;
+    }
+
+    /**
+     * 由私钥推导公钥，用参照引擎校验候选引擎的签名
+     */
+    private boolean referenceAccepts(byte[] digest, BigInteger d, byte[] sign) throws GeneralSecurityException {
+        byte[] publicKey = Secp256k1.encodePublicKey(Secp256k1.G.multiply(d));
+        if (!reference.verifyDigest(digest, publicKey, sign)) {
+            log.error("ECDSA 引擎 {} 的签名未通过 {} 引擎验签", candidate.getName(), reference.getName());
+            return false;
+        }
+        return true;
+    }
+
+    @Override
+    public boolean verifyDigest(byte[] digest, byte[] publicKey, byte[] sign) throws GeneralSecurityException {
+        boolean expected = reference.verifyDigest(digest, publicKey, sign);
+        boolean actual;
+        try {
+            actual = candidate.verifyDigest(digest, publicKey, sign);
+        } catch (GeneralSecurityException e) {
+            actual = false;
+        }
+        if (actual != expected) {
+            log.error("ECDSA 引擎验签结果不一致，{}={}，{}={}，publicKey={}，sign={}", candidate.getName(), actual,
+                    reference.getName(), expected, ByteUtils.bytesToHexString(publicKey), ByteUtils.bytesToHexString(sign));
+        }
+        return expected;
+    }
+}
@@ -0,0 +1,98 @@
+/*
+ * chenhx
+ * Copyright (C) 2013-2022 All Rights Reserved.
+ */
+package com.datacbc.util;
+
+import lombok.extern.slf4j.Slf4j;
+import org.bouncycastle.jce.ECNamedCurveTable;
+import org.bouncycastle.jce.provider.BouncyCastleProvider;
+import org.bouncycastle.jce.spec.ECParameterSpec;
+
+import java.nio.charset.StandardCharsets;
+import java.security.KeyPair;
+import java.security.Security;
+
+/**
+ * @author chenhx
+ * @version 0.0.1
+ * @className CryptoBootstrap.java
+ * @date 2026-10-18 10:10
+ * @description 加密组件启动初始化
+ * 只注册一次 BC Provider，预先解析 secp256k1 曲线参数；
+ * 启动时执行一轮生成密钥、签名、验签、摘要、编码的预热，让 JIT 编译和 BC 的基点预计算表在接收请求前就绪
+ */
+@Slf4j
+public final class CryptoBootstrap {
+    /**
+     * 预热轮数的系统属性名，0 表示不预热
+     */
+    public static final String WARM_UP_ITERATIONS_PROPERTY = "datacbc.crypto.warmUpIterations";
+
+    private static final int DEFAULT_WARM_UP_ITERATIONS = 200;
+
+    /**
+     * secp256k1 曲线参数，解析一次后复用
+     */
+    static final ECParameterSpec EC_PARAMETER_SPEC;
+
+    static {
+        registerProviders();
+        EC_PARAMETER_SPEC = ECNamedCurveTable.getParameterSpec(Secp256k1.NAME);
+    }
+
+    private static volatile boolean warmedUp;
+
+    private CryptoBootstrap() {
+    }  // Not instantiable
+
+    /**
+     * 启动初始化：注册 Provider，并按系统属性 datacbc.crypto.warmUpIterations 预热
+     */
+    public static void init() {
+        warmUp(Integer.getInteger(WARM_UP_ITERATIONS_PROPERTY, DEFAULT_WARM_UP_ITERATIONS));
+    }
+
+    /**
+     * 注册 BC Provider，已注册时不做任何事
+     * 类初始化时已调用一次，其他类需要 Provider 时只需触发本类初始化
+     */
+    public static synchronized void registerProviders() {
+        if (Security.getProvider(BouncyCastleProvider.PROVIDER_NAME) == null) {
+            Security.addProvider(new BouncyCastleProvider());
+        }
+    }
+
+    /**
+     * 预热，只执行一次
+     * @param iterations 签名/验签轮数
+     */
+    public static synchronized void warmUp(int iterations) {
+        if (warmedUp || iterations <= 0) {
+            return;
+        }
+        long start = System.currentTimeMillis();
+        try {
+            KeyPair keyPair = ECDSAUtils.newECKeyPair();
+            byte[] privateKey = ECDSAUtils.getBytesByKey(keyPair.getPrivate());
+            byte[] publicKey = ECDSAUtils.getBytesByKey(keyPair.getPublic());
+            ECDSASigner signer = ECDSASigner.of(privateKey);
+            byte[] data = "datacbc-warm-up".getBytes(StandardCharsets.UTF_8);
+            for (int i = 0; i < iterations; i++) {
+                data[0] = (byte) i;
+                byte[] sign = ECDSAUtils.sign(data, privateKey);
+                if (!ECDSAUtils.verify(data, publicKey, sign) || !ECDSAUtils.verify(data, publicKey, signer.sign(data))) {
+                    throw new IllegalStateException("warm-up signature does not verify");
+                }
+                Base58Check.bytesToBase58(ECDSAUtils.doubleSha256(data));
+                ECDSACodec.toCompressedPublicKey(publicKey);
+            }
+            warmedUp = true;
+            log.info("加密组件预热完成，engine={}，iterations={}，耗时 {} ms",
+                    ECDSAUtils.getEngine().getName(), iterations, System.currentTimeMillis() - start);
+        } catch (Exception e) {
+            // 预热失败不影响启动，首批请求会慢一些
+            log.warn("加密组件预热失败", e);
+        }
+    }
+}
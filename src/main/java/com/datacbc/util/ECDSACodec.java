@@ -0,0 +1,203 @@
+/*
+ * chenhx
+ * Copyright (C) 2013-2022 All Rights Reserved.
+ */
+package com.datacbc.util;
+
+import org.bouncycastle.asn1.ASN1Encoding;
+import org.bouncycastle.asn1.DERBitString;
+import org.bouncycastle.asn1.pkcs.PrivateKeyInfo;
+import org.bouncycastle.asn1.sec.ECPrivateKey;
+import org.bouncycastle.asn1.sec.SECObjectIdentifiers;
+import org.bouncycastle.asn1.x509.AlgorithmIdentifier;
+import org.bouncycastle.asn1.x9.X962Parameters;
+import org.bouncycastle.asn1.x9.X9ObjectIdentifiers;
+import org.bouncycastle.crypto.signers.StandardDSAEncoding;
+import org.bouncycastle.math.ec.ECPoint;
+import org.bouncycastle.math.ec.FixedPointCombMultiplier;
+import org.bouncycastle.util.BigIntegers;
+
+import java.io.IOException;
+import java.math.BigInteger;
+import java.security.GeneralSecurityException;
+import java.security.SignatureException;
+import java.security.spec.InvalidKeySpecException;
+
+/**
+ * @author chenhx
+ * @version 0.0.1
+ * @className ECDSACodec.java
+ * @date 2026-10-18 09:53
+ * @description 定长的密钥与签名编码，以及与现有 PKCS8/X509/DER 编码之间的转换
+ * 私钥：32 字节标量（PKCS8 约 144 字节）
+ * 公钥：33 字节压缩点（X509 为 88 字节）
+ * 签名：64 字节 r + s（DER 为 70~72 字节的变长编码）
+ */
+public final class ECDSACodec {
+
+    public static final int RAW_PRIVATE_KEY_LENGTH = 32;
+
+    public static final int COMPRESSED_PUBLIC_KEY_LENGTH = 33;
+
+    public static final int COMPACT_SIGNATURE_LENGTH = 64;
+
+    private static final X962Parameters CURVE_PARAMETERS = new X962Parameters(SECObjectIdentifiers.secp256k1);
+
+    private static final AlgorithmIdentifier ALGORITHM = new AlgorithmIdentifier(X9ObjectIdentifiers.id_ecPublicKey, CURVE_PARAMETERS);
+
+    private static final FixedPointCombMultiplier BASE_MULTIPLIER = new FixedPointCombMultiplier();
+
+    private ECDSACodec() {
+    }  // Not instantiable
+
+    /**
+     * PKCS8 私钥转 32 字节原始私钥
+     * @param privateKey PKCS8 编码的私钥
+     * @return
+     * @throws GeneralSecurityException
+     */
+    public static byte[] toRawPrivateKey(byte[] privateKey) throws GeneralSecurityException {
+        return BigIntegers.asUnsignedByteArray(RAW_PRIVATE_KEY_LENGTH, Secp256k1Engine.decodePrivateKey(privateKey));
+    }
+
+    /**
+     * 32 字节原始私钥转 PKCS8 私钥，编码与 BouncyCastle 生成的私钥（Wallet.privateKey）一致，包含公钥
+     * @param rawPrivateKey 32 字节原始私钥
+     * @return
+     * @throws GeneralSecurityException
+     */
+    public static byte[] fromRawPrivateKey(byte[] rawPrivateKey) throws GeneralSecurityException {
+        BigInteger d = decodeRawPrivateKey(rawPrivateKey);
+        return encodePrivateKey(d, BASE_MULTIPLIER.multiply(Secp256k1.G, d).normalize());
+    }
+
+    /**
+     * 32 字节原始私钥推导 X509 公钥
+     * @param rawPrivateKey 32 字节原始私钥
+     * @return
+     * @throws GeneralSecurityException
+     */
+    public static byte[] publicKeyOfRawPrivateKey(byte[] rawPrivateKey) throws GeneralSecurityException {
+        BigInteger d = decodeRawPrivateKey(rawPrivateKey);
+        return Secp256k1.encodePublicKey(BASE_MULTIPLIER.multiply(Secp256k1.G, d).normalize());
+    }
+
+    /**
+     * X509 公钥转 33 字节压缩公钥
+     * @param publicKey X509 编码的公钥
+     * @return
+     * @throws GeneralSecurityException
+     */
+    public static byte[] toCompressedPublicKey(byte[] publicKey) throws GeneralSecurityException {
+        return Secp256k1.decodePublicKey(publicKey).getEncoded(true);
+    }
+
+    /**
+     * 33 字节压缩公钥转 X509 公钥
+     * @param compressedPublicKey 33 字节压缩公钥
+     * @return
+     * @throws GeneralSecurityException
+     */
+    public static byte[] fromCompressedPublicKey(byte[] compressedPublicKey) throws GeneralSecurityException {
+        return Secp256k1.encodePublicKey(decodeCompressedPublicKey(compressedPublicKey));
+    }
+
+    /**
+     * DER 签名转 64 字节定长签名
+     * @param sign DER 编码的签名
+     * @return
+     * @throws SignatureException
+     */
+    public static byte[] toCompactSignature(byte[] sign) throws SignatureException {
+        BigInteger[] rs;
+        try {
+            rs = StandardDSAEncoding.INSTANCE.decode(Secp256k1.N, sign);
+        } catch (IOException | IllegalArgumentException e) {
+            throw new SignatureException("Invalid signature encoding", e);
+        }
+        byte[] compact = new byte[COMPACT_SIGNATURE_LENGTH];
+        BigIntegers.asUnsignedByteArray(rs[0], compact, 0, 32);
+        BigIntegers.asUnsignedByteArray(rs[1], compact, 32, 32);
+        return compact;
+    }
+
+    /**
+     * 64 字节定长签名转 DER 签名
+     * @param compactSign 64 字节定长签名
+     * @return
+     * @throws SignatureException
+     */
+    public static byte[] fromCompactSignature(byte[] compactSign) throws SignatureException {
+        BigInteger[] rs = decodeCompactSignature(compactSign);
+        try {
+            return StandardDSAEncoding.INSTANCE.encode(Secp256k1.N, rs[0], rs[1]);
+        } catch (IOException | IllegalArgumentException e) {
+            throw new SignatureException("Invalid signature", e);
+        }
+    }
+
+    /**
+     * 解析 33 字节压缩公钥
+     * @param compressedPublicKey
+     * @return
+     * @throws InvalidKeySpecException
+     */
+    public static ECPoint decodeCompressedPublicKey(byte[] compressedPublicKey) throws InvalidKeySpecException {
+        if (compressedPublicKey == null || compressedPublicKey.length != COMPRESSED_PUBLIC_KEY_LENGTH) {
+            throw new InvalidKeySpecException("compressed public key must be 33 bytes");
+        }
+        try {
+            return Secp256k1.CURVE.decodePoint(compressedPublicKey);
+        } catch (IllegalArgumentException e) {
+            throw new InvalidKeySpecException("Invalid public key", e);
+        }
+    }
+
+    /**
+     * 解析 32 字节原始私钥
+     * @param rawPrivateKey
+     * @return
+     * @throws InvalidKeySpecException
+     */
+    public static BigInteger decodeRawPrivateKey(byte[] rawPrivateKey) throws InvalidKeySpecException {
+        if (rawPrivateKey == null || rawPrivateKey.length != RAW_PRIVATE_KEY_LENGTH) {
+            throw new InvalidKeySpecException("raw private key must be 32 bytes");
+        }
+        BigInteger d = BigIntegers.fromUnsignedByteArray(rawPrivateKey);
+        if (d.signum() <= 0 || d.compareTo(Secp256k1.N) >= 0) {
+            throw new InvalidKeySpecException("Private key out of range");
+        }
+        return d;
+    }
+
+    /**
+     * 解析 64 字节定长签名
+     * @param compactSign
+     * @return r, s
+     * @throws SignatureException
+     */
+    static BigInteger[] decodeCompactSignature(byte[] compactSign) throws SignatureException {
+        if (compactSign == null || compactSign.length != COMPACT_SIGNATURE_LENGTH) {
+            throw new SignatureException("compact signature must be 64 bytes");
+        }
+        return new BigInteger[]{
+                BigIntegers.fromUnsignedByteArray(compactSign, 0, 32),
+                BigIntegers.fromUnsignedByteArray(compactSign, 32, 32)};
+    }
+
+    /**
+     * 按 BouncyCastle BCECPrivateKey.getEncoded 的结构编码 PKCS8 私钥
+     * @param d 私钥标量
+     * @param q 公钥点
+     * @return
+     */
+    public static byte[] encodePrivateKey(BigInteger d, ECPoint q) {
+        try {
+            ECPrivateKey keyStructure = new ECPrivateKey(Secp256k1.N.bitLength(), d,
+                    new DERBitString(q.getEncoded(false)), CURVE_PARAMETERS);
+            return new PrivateKeyInfo(ALGORITHM, keyStructure).getEncoded(ASN1Encoding.DER);
+        } catch (IOException e) {
+            throw new IllegalStateException("Fail to encode private key", e);
+        }
+    }
+}
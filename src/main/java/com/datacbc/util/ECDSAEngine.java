@@ -0,0 +1,56 @@
+/*
+ * chenhx
+ * Copyright (C) 2013-2022 All Rights Reserved.
+ */
+package com.datacbc.util;
+
+import java.security.GeneralSecurityException;
+import java.security.PrivateKey;
+
+/**
+ * @author chenhx
+ * @version 0.0.1
+ * @className ECDSAEngine.java
+ * @date 2026-10-18 09:49
+ * @description ECDSA 签名/验签引擎，ECDSAUtils 的所有签名与验签最终都交给当前引擎执行
+ * 引擎只处理摘要，摘要由 ECDSAUtils 计算，因此不同引擎之间的签名可以互相验签
+ */
+public interface ECDSAEngine {
+
+    /**
+     * 引擎名称，对应系统属性 datacbc.ecdsa.engine 的取值
+     * @return
+     */
+    String getName();
+
+    /**
+     * 对摘要签名
+     * @param digest 32 或 64 字节的摘要
+     * @param privateKey PKCS8 编码的私钥
+     * @return DER 编码的签名
+     * @throws GeneralSecurityException
+     */
+    byte[] signDigest(byte[] digest, byte[] privateKey) throws GeneralSecurityException;
+
+    /**
+     * 使用已解析的私钥对摘要签名，供 ECDSASigner 等持有私钥对象的调用方使用，省去每次解析 PKCS8
+     * 默认实现退回到编码后的私钥，引擎可以覆盖以直接使用私钥对象
+     * @param digest 32 或 64 字节的摘要
+     * @param privateKey 私钥
+     * @return DER 编码的签名
+     * @throws GeneralSecurityException
+     */
+    default byte[] signDigest(byte[] digest, PrivateKey privateKey) throws GeneralSecurityException {
+        return signDigest(digest, privateKey.getEncoded());
+    }
+
+    /**
+     * 校验对摘要的签名
+     * @param digest 32 或 64 字节的摘要
+     * @param publicKey X509 编码的公钥
+     * @param sign DER 编码的签名
+     * @return 校验成功返回true 失败返回false
+     * @throws GeneralSecurityException 公钥或签名格式错误
+     */
+    boolean verifyDigest(byte[] digest, byte[] publicKey, byte[] sign) throws GeneralSecurityException;
+}
@@ -0,0 +1,238 @@
+/*
+ * chenhx
+ * Copyright (C) 2013-2022 All Rights Reserved.
+ */
+package com.datacbc.util;
+
+import org.apache.commons.codec.digest.DigestUtils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.PrivateKey;
+import java.security.SignatureException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.RandomAccess;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * @author chenhx
+ * @version 0.0.1
+ * @className ECDSASigner.java
+ * @date 2026-10-18 09:45
+ * @description 持有已解析私钥的签名器，适合同一私钥反复签名的场景
+ * 签名交给 ECDSAUtils 当前的引擎（datacbc.ecdsa.engine）执行，与 ECDSAUtils.sign 的结果可以互相验签；
+ * 签名器本身只持有私钥，不持有线程相关的状态，线程安全
+ */
+public class ECDSASigner {
+    /**
+     * 批量签名时单个任务处理的最大数据条数，超过则继续拆分
+     */
+    private static final int SIGN_BATCH_THRESHOLD = 32;
+
+    private final PrivateKey privateKey;
+
+    private ECDSASigner(PrivateKey privateKey) {
+        this.privateKey = privateKey;
+    }
+
+    /**
+     * 通过私钥字节创建签名器
+     * @param privateKey PKCS8 编码的私钥
+     * @return
+     * @throws Exception
+     */
+    public static ECDSASigner of(byte[] privateKey) throws Exception {
+        return new ECDSASigner(ECDSAUtils.getPrivateKey(privateKey));
+    }
+
+    /**
+     * 通过私钥创建签名器
+     * @param privateKey 私钥
+     * @return
+     */
+    public static ECDSASigner of(PrivateKey privateKey) {
+        if (privateKey == null) {
+            throw new IllegalArgumentException("private key is null");
+        }
+        return new ECDSASigner(privateKey);
+    }
+
+    /**
+     * 签名
+     * @param data 待签名数据
+     * @return byte[] 数字签名
+     * @throws SignatureException
+     */
+    public byte[] sign(byte[] data) throws SignatureException {
+        // 与 SHA512withECDSA 等价：先计算 SHA-512，再由引擎对摘要签名
+        return signDigest(DigestUtils.sha512(data));
+    }
+
+    /**
+     * 签名，读取 data 中 position 到 limit 之间的数据
+     * @param data 待签名数据
+     * @return byte[] 数字签名
+     * @throws SignatureException
+     */
+    public byte[] sign(ByteBuffer data) throws SignatureException {
+        MessageDigest digest = DigestUtils.getSha512Digest();
+        digest.update(data);
+        return signDigest(digest.digest());
+    }
+
+    /**
+     * 对调用方预先计算好的摘要签名
+     * @param digest 32 或 64 字节的摘要
+     * @return byte[] 数字签名
+     * @throws SignatureException
+     */
+    public byte[] signDigest(byte[] digest) throws SignatureException {
+        ECDSAUtils.checkDigest(digest);
+        try {
+            return ECDSAUtils.getEngine().signDigest(digest, privateKey);
+        } catch (SignatureException e) {
+            throw e;
+        } catch (GeneralSecurityException e) {
+            throw new SignatureException(e);
+        }
+    }
+
+    /**
+     * 流式签名，数据不会整体读入内存
+     * @param data 待签名数据流，读取到末尾，不负责关闭
+     * @return byte[] 数字签名
+     * @throws IOException
+     * @throws SignatureException
+     */
+    public byte[] sign(InputStream data) throws IOException, SignatureException {
+        return signDigest(ECDSAUtils.sha512(data));
+    }
+
+    /**
+     * 文件签名，通过 FileChannel 分段内存映射读取文件
+     * @param file 待签名文件
+     * @return byte[] 数字签名
+     * @throws IOException
+     * @throws SignatureException
+     */
+    public byte[] sign(Path file) throws IOException, SignatureException {
+        return signDigest(ECDSAUtils.sha512(file));
+    }
+
+    /**
+     * 只对数据做一次 hash，同时得到数据ID（双重 SHA-256）和对该ID的签名
+     * @param data 待签名数据
+     * @return 数据ID与签名
+     * @throws SignatureException
+     */
+    public SignedDigest signWithId(byte[] data) throws SignatureException {
+        byte[] id = ECDSAUtils.doubleSha256(data);
+        return new SignedDigest(id, signDigest(id));
+    }
+
+    /**
+     * 对规范编码对象做一次 hash，同时得到数据ID和签名，不生成中间数组
+     * @param value 待签名对象
+     * @return 数据ID与签名
+     * @throws SignatureException
+     */
+    public SignedDigest signWithId(Canonical value) throws SignatureException {
+        byte[] id = CanonicalWriter.id(value);
+        return new SignedDigest(id, signDigest(id));
+    }
+
+    /**
+     * 对规范编码对象签名，结果与 sign(CanonicalWriter.toBytes(value)) 一致，不生成中间数组
+     * @param value 待签名对象
+     * @return byte[] 数字签名
+     * @throws SignatureException
+     */
+    public byte[] sign(Canonical value) throws SignatureException {
+        return signDigest(CanonicalWriter.sha512(value));
+    }
+
+    /**
+     * 批量签名，使用 ECDSAUtils 的批量线程池
+     * @param dataList 待签名数据
+     * @return 与 dataList 顺序一致的签名
+     * @throws SignatureException 任意一条签名失败
+     */
+    public List<byte[]> signAll(List<byte[]> dataList) throws SignatureException {
+        ECDSAUtils.VerifyPoolRef ref = ECDSAUtils.acquireVerifyPool();
+        try {
+            return signAll(dataList, ref.pool);
+        } finally {
+            ref.release();
+        }
+    }
+
+    /**
+     * 批量签名
+     * @param dataList 待签名数据
+     * @param pool 执行签名的线程池
+     * @return 与 dataList 顺序一致的签名
+     * @throws SignatureException 任意一条签名失败
+     */
+    public List<byte[]> signAll(List<byte[]> dataList, ForkJoinPool pool) throws SignatureException {
+        if (dataList == null || dataList.isEmpty()) {
+            return new ArrayList<>();
+        }
+        List<byte[]> list = dataList instanceof RandomAccess ? dataList : new ArrayList<>(dataList);
+        byte[][] results = new byte[list.size()][];
+        SignatureException[] errors = new SignatureException[1];
+        SignTask task = new SignTask(list, results, errors, 0, list.size());
+        if (list.size() <= SIGN_BATCH_THRESHOLD) {
+            task.compute();
+        } else {
+            pool.invoke(task);
+        }
+        if (errors[0] != null) {
+            throw errors[0];
+        }
+        return Arrays.asList(results);
+    }
+
+    /**
+     * 批量签名任务，按区间二分拆分
+     */
+    private class SignTask extends RecursiveAction {
+        private static final long serialVersionUID = 5316028718834623049L;
+        private final List<byte[]> dataList;
+        private final byte[][] results;
+        private final SignatureException[] errors;
+        private final int from;
+        private final int to;
+
+        SignTask(List<byte[]> dataList, byte[][] results, SignatureException[] errors, int from, int to) {
+            this.dataList = dataList;
+            this.results = results;
+            this.errors = errors;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= SIGN_BATCH_THRESHOLD) {
+                for (int i = from; i < to; i++) {
+                    try {
+                        results[i] = sign(dataList.get(i));
+                    } catch (SignatureException e) {
+                        errors[0] = e;
+                        return;
+                    }
+                }
+                return;
+            }
+            int mid = (from + to) >>> 1;
+            invokeAll(new SignTask(dataList, results, errors, from, mid), new SignTask(dataList, results, errors, mid, to));
+        }
+    }
+}
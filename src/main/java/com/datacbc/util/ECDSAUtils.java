@@ -4,14 +4,30 @@
  */
 package com.datacbc.util;
 
-import org.bouncycastle.jce.ECNamedCurveTable;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.codec.digest.DigestUtils;
 import org.bouncycastle.jce.provider.BouncyCastleProvider;
-import org.bouncycastle.jce.spec.ECParameterSpec;
+import org.bouncycastle.math.ec.ECPoint;
+import org.bouncycastle.util.BigIntegers;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigInteger;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 import java.security.*;
 import java.security.spec.PKCS8EncodedKeySpec;
 import java.security.spec.X509EncodedKeySpec;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.RandomAccess;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  *
@@ -22,6 +38,7 @@ import java.util.Arrays;
  * @date 2022-06-19 18:57
  * @description ECDSA 加解密工具类
  */
+@Slf4j
 public class ECDSAUtils {
     public static void main(String[] args) throws Exception {
         //生成一个公私钥
@@ -65,20 +82,81 @@ public class ECDSAUtils {
      * SHA384withECDSA
      * SHA512withECDSA
      */
-    private static final String SIGNATURE_ALGORITHM = "SHA512withECDSA";
+    static final String SIGNATURE_ALGORITHM = "SHA512withECDSA";
+
+    /**
+     * 预先计算摘要时使用的签名/验证算法，直接对调用方传入的摘要签名
+     * 对 SHA-512(data) 使用该算法签名，与对 data 使用 SHA512withECDSA 签名可以互相验签
+     */
+    static final String DIGEST_SIGNATURE_ALGORITHM = "NONEwithECDSA";
+
+    /**
+     * 流式读取时每个线程复用的缓冲区大小
+     */
+    private static final int STREAM_BUFFER_SIZE = 64 * 1024;
+    /**
+     * 文件内存映射的窗口大小，超过该大小的文件分段映射
+     */
+    private static final long MAPPED_WINDOW_SIZE = 64L * 1024 * 1024;
+
+    /**
+     * 选择签名/验签引擎的系统属性名，可选值：bc（默认）、secp256k1、crosscheck
+     */
+    public static final String ENGINE_PROPERTY = "datacbc.ecdsa.engine";
+
+    /**
+     * 批量验签时单个任务处理的最大签名数量，超过则继续拆分
+     */
+    private static final int VERIFY_BATCH_THRESHOLD = 64;
+
+    static {
+        // 注册 BC Provider，只需注册一次
+        CryptoBootstrap.registerProviders();
+    }
+
+    /**
+     * 批量验签使用的线程池，默认使用公共 ForkJoinPool
+     */
+    private static volatile VerifyPoolRef verifyPool = new VerifyPoolRef(ForkJoinPool.commonPool(), false);
+
+    /**
+     * 线程内复用的密钥工厂，避免每次验签都重新查找 Provider
+     */
+    private static final ThreadLocal<KeyFactory> keyFactoryThreadLocal = new ThreadLocal<KeyFactory>() {
+        @Override
+        protected KeyFactory initialValue() {
+            try {
+                return KeyFactory.getInstance(KEY_ALGORITHM, BouncyCastleProvider.PROVIDER_NAME);
+            } catch (GeneralSecurityException e) {
+                throw new IllegalStateException("Fail to create KeyFactory ! ", e);
+            }
+        }
+    };
+
+    /**
+     * 线程内复用的流式读取缓冲区
+     */
+    private static final ThreadLocal<byte[]> streamBufferThreadLocal = new ThreadLocal<byte[]>() {
+        @Override
+        protected byte[] initialValue() {
+            return new byte[STREAM_BUFFER_SIZE];
+        }
+    };
+
+    /**
+     * 当前使用的签名/验签引擎
+     */
+    private static volatile ECDSAEngine engine = createEngine(System.getProperty(ENGINE_PROPERTY, JcaECDSAEngine.NAME));
 
     /**
      * 创建新的密钥对
      * @return
      */
     public static KeyPair newECKeyPair() throws InvalidAlgorithmParameterException, NoSuchAlgorithmException, NoSuchProviderException {
-        // 注册 BC Provider
-        Security.addProvider(new BouncyCastleProvider());
-        // 创建椭圆曲线算法的密钥对生成器，算法为 ECDSA
+        // 创建椭圆曲线算法的密钥对生成器，算法为 ECDSA，BC Provider 已在类初始化时注册
         KeyPairGenerator keyPairGenerator = KeyPairGenerator.getInstance(KEY_ALGORITHM, BouncyCastleProvider.PROVIDER_NAME);
-        // 椭圆曲线（EC）域参数设定
-        ECParameterSpec ecSpec = ECNamedCurveTable.getParameterSpec(EC_PARAMETER_SPEC);
-        keyPairGenerator.initialize(ecSpec, new SecureRandom());
+        // 椭圆曲线（EC）域参数设定，使用预先解析好的参数
+        keyPairGenerator.initialize(CryptoBootstrap.EC_PARAMETER_SPEC, SecureRandomUtils.get());
         return keyPairGenerator.generateKeyPair();
     }
 
@@ -101,34 +179,44 @@ public class ECDSAUtils {
      */
     public static PrivateKey getPrivateKey(byte[] privateKeyBytes)
             throws Exception {
-        // 加入BouncyCastleProvider支持
-        Security.addProvider(new BouncyCastleProvider());
+        return decodePrivateKey(privateKeyBytes);
+    }
+
+    /**
+     * 解析 PKCS8 编码的私钥
+     * @param privateKeyBytes
+     * @return
+     * @throws GeneralSecurityException
+     */
+    static PrivateKey decodePrivateKey(byte[] privateKeyBytes) throws GeneralSecurityException {
         // 转换私钥材料
         PKCS8EncodedKeySpec pkcs8KeySpec = new PKCS8EncodedKeySpec(privateKeyBytes);
-        // 实例化密钥工厂
-        KeyFactory keyFactory = KeyFactory.getInstance(KEY_ALGORITHM);
-        // 取私钥匙对象
-        PrivateKey priKey = keyFactory.generatePrivate(pkcs8KeySpec);
-        return priKey;
+        // 取私钥匙对象，复用当前线程的密钥工厂
+        return keyFactoryThreadLocal.get().generatePrivate(pkcs8KeySpec);
     }
 
     /**
-     * 通过字节获取公钥
+     * 通过字节获取公钥，优先从公钥缓存中获取
      * @param publicKeyBytes
      * @return
      * @throws Exception
      */
     public static PublicKey getPublicKey(byte[] publicKeyBytes)
             throws Exception {
-        // 加入BouncyCastleProvider支持
-        Security.addProvider(new BouncyCastleProvider());
+        return PublicKeyCache.getDefault().get(publicKeyBytes);
+    }
+
+    /**
+     * 解析 X509 编码的公钥，不经过缓存
+     * @param publicKeyBytes
+     * @return
+     * @throws GeneralSecurityException
+     */
+    static PublicKey decodePublicKey(byte[] publicKeyBytes) throws GeneralSecurityException {
         // 转换公钥材料
         X509EncodedKeySpec keySpec = new X509EncodedKeySpec(publicKeyBytes);
-        // 实例化密钥工厂
-        KeyFactory keyFactory = KeyFactory.getInstance(KEY_ALGORITHM);
-        // 生成公钥
-        PublicKey pubKey = keyFactory.generatePublic(keySpec);
-        return pubKey;
+        // 使用线程内复用的密钥工厂生成公钥
+        return keyFactoryThreadLocal.get().generatePublic(keySpec);
     }
 
     /**
@@ -141,15 +229,8 @@ public class ECDSAUtils {
      * @throws Exception
      */
     public static byte[] sign(byte[] data, byte[] privateKey) throws Exception {
-        PrivateKey priKey = ECDSAUtils.getPrivateKey(privateKey);
-        // 实例化Signature
-        Signature signature = Signature.getInstance(SIGNATURE_ALGORITHM, BouncyCastleProvider.PROVIDER_NAME);
-        // 初始化Signature
-        signature.initSign(priKey);
-        // 更新
-        signature.update(data);
-        // 签名
-        return signature.sign();
+        // 与 SHA512withECDSA 等价：先计算 SHA-512，再由引擎对摘要签名
+        return signDigest(DigestUtils.sha512(data), privateKey);
     }
 
     /**
@@ -166,21 +247,527 @@ public class ECDSAUtils {
      */
     public static boolean verify(byte[] data, byte[] publicKey, byte[] sign)
             throws Exception {
-        //获取公钥
-        PublicKey pubKey = ECDSAUtils.getPublicKey(publicKey);
-        // 实例化Signature
-        Signature signature = Signature.getInstance(SIGNATURE_ALGORITHM, BouncyCastleProvider.PROVIDER_NAME);
-        // 初始化Signature
-        signature.initVerify(pubKey);
-        // 更新
-        signature.update(data);
-        // 验证
-        return signature.verify(sign);
+        // 与 SHA512withECDSA 等价：先计算 SHA-512，再由引擎校验对摘要的签名
+        return verifyDigest(DigestUtils.sha512(data), publicKey, sign);
     }
     public static boolean verify(String data,String publicKey, String sign)
             throws Exception {
         return ECDSAUtils.verify(ByteUtils.hexStringToByte(data),ByteUtils.hexStringToByte(publicKey),ByteUtils.hexStringToByte(sign));
     }
 
+    /**
+     * 对调用方预先计算好的摘要签名，签名引擎内部不再做 hash
+     * @param digest
+     *            32 或 64 字节的摘要
+     * @param privateKey
+     *            私钥
+     * @return byte[] 数字签名
+     * @throws Exception
+     */
+    public static byte[] signDigest(byte[] digest, byte[] privateKey) throws Exception {
+        checkDigest(digest);
+        return engine.signDigest(digest, privateKey);
+    }
+
+    /**
+     * 校验对摘要的签名
+     * @param digest
+     *            32 或 64 字节的摘要
+     * @param publicKey
+     *            公钥
+     * @param sign
+     *            数字签名
+     * @return boolean 校验成功返回true 失败返回false
+     * @throws Exception
+     */
+    public static boolean verifyDigest(byte[] digest, byte[] publicKey, byte[] sign) throws Exception {
+        checkDigest(digest);
+        return engine.verifyDigest(digest, publicKey, sign);
+    }
+
+    /**
+     * 只对数据做一次 hash，同时得到数据ID（双重 SHA-256）和对该ID的签名
+     * 签名可以通过 verifyDigest(id, publicKey, sign) 校验
+     * @param data
+     *            待签名数据
+     * @param privateKey
+     *            私钥
+     * @return 数据ID与签名
+     * @throws Exception
+     */
+    public static SignedDigest signWithId(byte[] data, byte[] privateKey) throws Exception {
+        byte[] id = doubleSha256(data);
+        return new SignedDigest(id, signDigest(id, privateKey));
+    }
+
+    /**
+     * 对规范编码对象做一次 hash，同时得到数据ID和签名
+     * 编码直接写入摘要，不生成中间数组；结果与 signWithId(CanonicalWriter.toBytes(value), privateKey) 相同
+     * @param value
+     *            待签名对象
+     * @param privateKey
+     *            私钥
+     * @return 数据ID与签名
+     * @throws Exception
+     */
+    public static SignedDigest signWithId(Canonical value, byte[] privateKey) throws Exception {
+        byte[] id = CanonicalWriter.id(value);
+        return new SignedDigest(id, signDigest(id, privateKey));
+    }
+
+    /**
+     * 对规范编码对象签名，结果与 sign(CanonicalWriter.toBytes(value), privateKey) 一致，不生成中间数组
+     * @param value
+     *            待签名对象
+     * @param privateKey
+     *            私钥
+     * @return byte[] 数字签名
+     * @throws Exception
+     */
+    public static byte[] sign(Canonical value, byte[] privateKey) throws Exception {
+        return signDigest(CanonicalWriter.sha512(value), privateKey);
+    }
+
+    /**
+     * 校验对规范编码对象的签名
+     * @param value
+     *            待校验对象
+     * @param publicKey
+     *            公钥
+     * @param sign
+     *            数字签名
+     * @return boolean 校验成功返回true 失败返回false
+     * @throws Exception
+     */
+    public static boolean verify(Canonical value, byte[] publicKey, byte[] sign) throws Exception {
+        return verifyDigest(CanonicalWriter.sha512(value), publicKey, sign);
+    }
+
+    /**
+     * 使用 32 字节原始私钥签名
+     * @param data
+     *            待签名数据
+     * @param rawPrivateKey
+     *            32 字节原始私钥
+     * @return byte[] 64 字节定长签名 r + s
+     * @throws Exception
+     */
+    public static byte[] signCompact(byte[] data, byte[] rawPrivateKey) throws Exception {
+        BigInteger[] rs = Secp256k1Engine.sign(DigestUtils.sha512(data), ECDSACodec.decodeRawPrivateKey(rawPrivateKey));
+        byte[] compact = new byte[ECDSACodec.COMPACT_SIGNATURE_LENGTH];
+        BigIntegers.asUnsignedByteArray(rs[0], compact, 0, 32);
+        BigIntegers.asUnsignedByteArray(rs[1], compact, 32, 32);
+        return compact;
+    }
+
+    /**
+     * 使用 33 字节压缩公钥校验 64 字节定长签名，不经过 ASN.1 解析
+     * @param data
+     *            待校验数据
+     * @param compressedPublicKey
+     *            33 字节压缩公钥
+     * @param compactSign
+     *            64 字节定长签名
+     * @return boolean 校验成功返回true 失败返回false
+     * @throws Exception 公钥或签名格式错误
+     */
+    public static boolean verifyCompact(byte[] data, byte[] compressedPublicKey, byte[] compactSign) throws Exception {
+        ECPoint q = ECDSACodec.decodeCompressedPublicKey(compressedPublicKey);
+        BigInteger[] rs = ECDSACodec.decodeCompactSignature(compactSign);
+        return Secp256k1Engine.verify(DigestUtils.sha512(data), q, rs[0], rs[1]);
+    }
+
+    /**
+     * 生成可恢复公钥的签名，验签方无需携带公钥
+     * @param data
+     *            待签名数据
+     * @param privateKey
+     *            私钥
+     * @return byte[] r(32) + s(32) + recId(1)，共 65 字节
+     * @throws Exception
+     */
+    public static byte[] signRecoverable(byte[] data, byte[] privateKey) throws Exception {
+        return signDigestRecoverable(DigestUtils.sha512(data), privateKey);
+    }
+
+    /**
+     * 对摘要生成可恢复公钥的签名
+     * @param digest
+     *            32 或 64 字节的摘要
+     * @param privateKey
+     *            私钥
+     * @return byte[] r(32) + s(32) + recId(1)，共 65 字节
+     * @throws Exception
+     */
+    public static byte[] signDigestRecoverable(byte[] digest, byte[] privateKey) throws Exception {
+        checkDigest(digest);
+        return Secp256k1Engine.signRecoverable(digest, Secp256k1Engine.decodePrivateKey(privateKey));
+    }
+
+    /**
+     * 由可恢复签名恢复公钥
+     * @param data
+     *            被签名的数据
+     * @param sign
+     *            可恢复签名
+     * @return byte[] X509 编码的公钥，与 Wallet.publicKey 格式一致
+     * @throws Exception 签名格式错误或无法恢复
+     */
+    public static byte[] recoverPublicKey(byte[] data, byte[] sign) throws Exception {
+        return recoverPublicKeyFromDigest(DigestUtils.sha512(data), sign);
+    }
+
+    /**
+     * 由可恢复签名与摘要恢复公钥
+     * @param digest
+     *            32 或 64 字节的摘要
+     * @param sign
+     *            可恢复签名
+     * @return byte[] X509 编码的公钥，与 Wallet.publicKey 格式一致
+     * @throws Exception 签名格式错误或无法恢复
+     */
+    public static byte[] recoverPublicKeyFromDigest(byte[] digest, byte[] sign) throws Exception {
+        checkDigest(digest);
+        return Secp256k1.encodePublicKey(Secp256k1Engine.recoverPublicKey(digest, sign));
+    }
+
+    /**
+     * 流式签名，数据不会整体读入内存，签名结果与 sign(byte[], byte[]) 可以互相验签
+     * @param data
+     *            待签名数据流，读取到末尾，不负责关闭
+     * @param privateKey
+     *            私钥
+     * @return byte[] 数字签名
+     * @throws Exception
+     */
+    public static byte[] sign(InputStream data, byte[] privateKey) throws Exception {
+        return signDigest(sha512(data), privateKey);
+    }
+
+    /**
+     * 文件签名，通过 FileChannel 分段内存映射读取文件
+     * @param file
+     *            待签名文件
+     * @param privateKey
+     *            私钥
+     * @return byte[] 数字签名
+     * @throws Exception
+     */
+    public static byte[] sign(Path file, byte[] privateKey) throws Exception {
+        return signDigest(sha512(file), privateKey);
+    }
+
+    /**
+     * 流式验签
+     * @param data
+     *            待校验数据流，读取到末尾，不负责关闭
+     * @param publicKey
+     *            公钥
+     * @param sign
+     *            数字签名
+     * @return boolean 校验成功返回true 失败返回false
+     * @throws Exception
+     */
+    public static boolean verify(InputStream data, byte[] publicKey, byte[] sign) throws Exception {
+        return verifyDigest(sha512(data), publicKey, sign);
+    }
+
+    /**
+     * 文件验签，通过 FileChannel 分段内存映射读取文件
+     * @param file
+     *            待校验文件
+     * @param publicKey
+     *            公钥
+     * @param sign
+     *            数字签名
+     * @return boolean 校验成功返回true 失败返回false
+     * @throws Exception
+     */
+    public static boolean verify(Path file, byte[] publicKey, byte[] sign) throws Exception {
+        return verifyDigest(sha512(file), publicKey, sign);
+    }
+
+    /**
+     * 流式计算 SHA-512，使用线程内复用的缓冲区
+     * @param data
+     * @return
+     * @throws IOException
+     */
+    static byte[] sha512(InputStream data) throws IOException {
+        MessageDigest digest = DigestUtils.getSha512Digest();
+        byte[] buffer = streamBufferThreadLocal.get();
+        int read;
+        while ((read = data.read(buffer)) != -1) {
+            digest.update(buffer, 0, read);
+        }
+        return digest.digest();
+    }
+
+    /**
+     * 计算文件的 SHA-512，按窗口大小分段内存映射
+     * @param file
+     * @return
+     * @throws IOException
+     */
+    static byte[] sha512(Path file) throws IOException {
+        MessageDigest digest = DigestUtils.getSha512Digest();
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            for (long position = 0; position < size; position += MAPPED_WINDOW_SIZE) {
+                long length = Math.min(MAPPED_WINDOW_SIZE, size - position);
+                MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, position, length);
+                digest.update(mapped);
+            }
+        }
+        return digest.digest();
+    }
+
+    /**
+     * 双重 SHA-256，与 Wallet.doubleHash 结果一致
+     * @param data
+     * @return
+     */
+    static byte[] doubleSha256(byte[] data) {
+        return DigestUtils.sha256(DigestUtils.sha256(data));
+    }
+
+    /**
+     * 摘要长度必须是 32（SHA-256）或 64（SHA-512）字节，防止误把原始数据当成摘要签名
+     * @param digest
+     */
+    static void checkDigest(byte[] digest) {
+        if (digest == null || (digest.length != 32 && digest.length != 64)) {
+            throw new IllegalArgumentException("digest must be 32 or 64 bytes");
+        }
+    }
+
+    /**
+     * 批量验签，使用默认的验签线程池
+     * @param requests 待验签请求
+     * @return BitSet 第 i 位为 true 表示第 i 个请求验签成功
+     */
+    public static BitSet verifyAll(List<VerifyRequest> requests) {
+        VerifyPoolRef ref = acquireVerifyPool();
+        try {
+            return verifyAll(requests, ref.pool);
+        } finally {
+            ref.release();
+        }
+    }
+
+    /**
+     * 批量验签
+     * 每个线程复用自己的 KeyFactory/Signature，任务按区间拆分后在 ForkJoinPool 中并行执行
+     * @param requests 待验签请求
+     * @param pool 执行验签的线程池
+     * @return BitSet 第 i 位为 true 表示第 i 个请求验签成功
+     */
+    public static BitSet verifyAll(List<VerifyRequest> requests, ForkJoinPool pool) {
+        if (pool == null) {
+            throw new IllegalArgumentException("verify pool is null");
+        }
+        BitSet bitSet = new BitSet(requests == null ? 0 : requests.size());
+        if (requests == null || requests.isEmpty()) {
+            return bitSet;
+        }
+        List<VerifyRequest> list = requests instanceof RandomAccess ? requests : new ArrayList<>(requests);
+        boolean[] results = new boolean[list.size()];
+        VerifyTask task = new VerifyTask(list, results, 0, list.size());
+        if (list.size() <= VERIFY_BATCH_THRESHOLD) {
+            // 数量较少时直接在当前线程执行，省去线程切换
+            task.compute();
+        } else {
+            pool.invoke(task);
+        }
+        for (int i = 0; i < results.length; i++) {
+            if (results[i]) {
+                bitSet.set(i);
+            }
+        }
+        return bitSet;
+    }
+
+    /**
+     * 设置批量验签使用的线程池，调用方传入的线程池由调用方负责关闭，这里不会关闭
+     * 原线程池是 setVerifyParallelism 创建的，则在使用它的批量验签全部结束后关闭
+     * @param pool 线程池
+     */
+    public static void setVerifyPool(ForkJoinPool pool) {
+        if (pool == null) {
+            throw new IllegalArgumentException("verify pool is null");
+        }
+        swapVerifyPool(new VerifyPoolRef(pool, false));
+    }
+
+    /**
+     * 批量验签（以及批量签名）使用的线程池
+     * 返回的线程池随后可能被替换；setVerifyParallelism 创建的线程池被替换后会关闭，长期持有请用 setVerifyPool 传入自己的线程池
+     * @return
+     */
+    public static ForkJoinPool getVerifyPool() {
+        return verifyPool.pool;
+    }
+
+    /**
+     * 取出当前线程池并登记使用，用完调用 release；登记期间线程池被替换也不会关闭
+     * @return
+     */
+    static VerifyPoolRef acquireVerifyPool() {
+        for (;;) {
+            VerifyPoolRef ref = verifyPool;
+            ref.inFlight.incrementAndGet();
+            if (!ref.retired) {
+                return ref;
+            }
+            // 已被替换，释放后取新的
+            ref.release();
+        }
+    }
+
+    private static synchronized void swapVerifyPool(VerifyPoolRef ref) {
+        VerifyPoolRef previous = verifyPool;
+        if (previous.pool == ref.pool) {
+            // 同一个线程池，保留原来的登记和归属
+            return;
+        }
+        verifyPool = ref;
+        previous.retire();
+    }
+
+    /**
+     * 当前使用的签名/验签引擎
+     * @return
+     */
+    public static ECDSAEngine getEngine() {
+        return engine;
+    }
+
+    /**
+     * 切换签名/验签引擎
+     * @param ecdsaEngine 引擎
+     */
+    public static void setEngine(ECDSAEngine ecdsaEngine) {
+        if (ecdsaEngine == null) {
+            throw new IllegalArgumentException("ecdsa engine is null");
+        }
+        engine = ecdsaEngine;
+    }
+
+    /**
+     * 按名称切换签名/验签引擎
+     * @param name bc、secp256k1 或 crosscheck
+     */
+    public static void setEngine(String name) {
+        setEngine(createEngine(name));
+    }
+
+    /**
+     * 按名称创建引擎
+     * @param name
+     * @return
+     */
+    private static ECDSAEngine createEngine(String name) {
+        if (JcaECDSAEngine.NAME.equalsIgnoreCase(name)) {
+            return new JcaECDSAEngine();
+        }
+        if (Secp256k1Engine.NAME.equalsIgnoreCase(name)) {
+            return new Secp256k1Engine();
+        }
+        if (CrossCheckECDSAEngine.NAME.equalsIgnoreCase(name)) {
+            return new CrossCheckECDSAEngine(new Secp256k1Engine(), new JcaECDSAEngine());
+        }
+        throw new IllegalArgumentException("Unknown ecdsa engine: " + name);
+    }
+
+    /**
+     * 按并行度创建新的批量验签线程池，该线程池由这里负责关闭：再次调用或 setVerifyPool 替换后，
+     * 等使用它的批量验签结束后关闭；原线程池若是调用方传入的则不会关闭
+     * @param parallelism 并行度
+     */
+    public static void setVerifyParallelism(int parallelism) {
+        swapVerifyPool(new VerifyPoolRef(new ForkJoinPool(parallelism), true));
+    }
+
+    /**
+     * 验签，异常视为验签失败
+     * @param request 验签请求
+     * @return
+     */
+    private static boolean verifyQuietly(VerifyRequest request) {
+        if (request == null) {
+            return false;
+        }
+        try {
+            return verify(request.getData(), request.getPublicKey(), request.getSign());
+        } catch (Exception e) {
+            log.debug("验签异常，视为验签失败", e);
+            return false;
+        }
+    }
+
+    /**
+     * 批量验签线程池及正在使用它的批量任务数
+     * 替换后标记为 retired，owned（setVerifyParallelism 创建）的线程池在最后一个使用者释放时关闭
+     */
+    static final class VerifyPoolRef {
+        final ForkJoinPool pool;
+        private final boolean owned;
+        private final AtomicInteger inFlight = new AtomicInteger();
+        private volatile boolean retired;
+
+        VerifyPoolRef(ForkJoinPool pool, boolean owned) {
+            this.pool = pool;
+            this.owned = owned;
+        }
+
+        void release() {
+            if (inFlight.decrementAndGet() == 0 && retired) {
+                shutdownIfOwned();
+            }
+        }
+
+        private void retire() {
+            retired = true;
+            if (inFlight.get() == 0) {
+                shutdownIfOwned();
+            }
+        }
+
+        private void shutdownIfOwned() {
+            if (owned) {
+                pool.shutdown();
+            }
+        }
+    }
+
+    /**
+     * 批量验签任务，按区间二分拆分
+     */
+    private static class VerifyTask extends RecursiveAction {
+        private static final long serialVersionUID = -3461813826415930473L;
+        private final List<VerifyRequest> requests;
+        private final boolean[] results;
+        private final int from;
+        private final int to;
+
+        VerifyTask(List<VerifyRequest> requests, boolean[] results, int from, int to) {
+            this.requests = requests;
+            this.results = results;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= VERIFY_BATCH_THRESHOLD) {
+                for (int i = from; i < to; i++) {
+                    results[i] = verifyQuietly(requests.get(i));
+                }
+                return;
+            }
+            int mid = (from + to) >>> 1;
+            invokeAll(new VerifyTask(requests, results, from, mid), new VerifyTask(requests, results, mid, to));
+        }
+    }
 
 }
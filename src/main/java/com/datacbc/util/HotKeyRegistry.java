@@ -0,0 +1,149 @@
+/*
+ * chenhx
+ * Copyright (C) 2013-2022 All Rights Reserved.
+ */
+package com.datacbc.util;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.RemovalCause;
+import lombok.extern.slf4j.Slf4j;
+import org.bouncycastle.math.ec.ECAlgorithms;
+import org.bouncycastle.math.ec.ECPoint;
+import org.bouncycastle.math.ec.WNafUtil;
+
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.security.spec.InvalidKeySpecException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * @author chenhx
+ * @version 0.0.1
+ * @className HotKeyRegistry.java
+ * @date 2026-10-18 09:51
+ * @description 热点公钥登记表
+ * 高频验签的公钥（如出块/背书节点公钥）登记后，会为其单独构建一份大窗口的 wNAF 奇数倍点表（含 GLV 自同态映射点的表），
+ * 之后针对该公钥的每次验签都直接复用，不再从头预计算。
+ * 按估算的表内存设置上限，超过上限时最久未使用的公钥被降级为普通公钥（表随之释放）。
+ * bc（默认）、secp256k1、crosscheck 三个内置引擎验签时都会优先使用登记表；
+ * 通过 ECDSAUtils.setEngine 设置的其他引擎不使用登记表，此时登记会记录警告日志。
+ */
+@Slf4j
+public class HotKeyRegistry {
+    /**
+     * 内存上限的系统属性名，单位字节
+     */
+    public static final String MAX_BYTES_PROPERTY = "datacbc.ecdsa.hotKeys.maxBytes";
+    /**
+     * 默认内存上限 32M
+     */
+    private static final long DEFAULT_MAX_BYTES = 32L * 1024 * 1024;
+    /**
+     * 热点公钥使用的 wNAF 窗口宽度，BouncyCastle 允许的最大值
+     */
+    private static final int HOT_WINDOW_WIDTH = 8;
+    /**
+     * 单个热点公钥的预计算表估算大小：
+     * 2^(w-2) 个奇数倍点，含负点翻倍，GLV 映射点再翻倍，每个 Jacobian 点约 256 字节
+     */
+    private static final int ESTIMATED_TABLE_BYTES = (1 << (HOT_WINDOW_WIDTH - 2)) * 2 * 2 * 256;
+
+    private static final HotKeyRegistry DEFAULT = new HotKeyRegistry(Long.getLong(MAX_BYTES_PROPERTY, DEFAULT_MAX_BYTES));
+
+    private final Cache<ByteBuffer, ECPoint> hotKeys;
+
+    private final AtomicLong demotionCount = new AtomicLong();
+
+    public HotKeyRegistry(long maxBytes) {
+        // 登记是低频写操作，单分段保证内存上限按整体而不是按分段计算，读操作不加锁
+        this.hotKeys = CacheBuilder.newBuilder()
+                .concurrencyLevel(1)
+                .maximumWeight(maxBytes)
+                .weigher((ByteBuffer key, ECPoint value) -> ESTIMATED_TABLE_BYTES)
+                .removalListener(notification -> {
+                    if (notification.getCause() == RemovalCause.SIZE) {
+                        demotionCount.incrementAndGet();
+                        log.debug("热点公钥超出内存上限被降级");
+                    }
+                })
+                .build();
+    }
+
+    public static HotKeyRegistry getDefault() {
+        return DEFAULT;
+    }
+
+    /**
+     * 登记热点公钥并立即构建预计算表
+     * @param publicKey X509 编码的公钥
+     * @throws InvalidKeySpecException 公钥格式错误
+     */
+    public void register(byte[] publicKey) throws InvalidKeySpecException {
+        warnIfIgnored(ECDSAUtils.getEngine());
+        ByteBuffer key = ByteBuffer.wrap(publicKey.clone());
+        if (hotKeys.asMap().containsKey(key)) {
+            return;
+        }
+        // 单独解析一个点对象，降级时整张表可以随点一起回收，不影响公钥缓存中的点
+        ECPoint q = Secp256k1.decodePublicKey(publicKey);
+        WNafUtil.precompute(q, HOT_WINDOW_WIDTH, true);
+        // 做一次乘法，让 GLV 自同态映射点的表也按同样的窗口构建好
+        ECAlgorithms.sumOfTwoMultiplies(Secp256k1.G, BigInteger.ONE, q, Secp256k1.HALF_N);
+        hotKeys.put(key, q);
+    }
+
+    /**
+     * 取消登记
+     * @param publicKey X509 编码的公钥
+     */
+    public void unregister(byte[] publicKey) {
+        hotKeys.invalidate(ByteBuffer.wrap(publicKey));
+    }
+
+    /**
+     * 查询热点公钥对应的点
+     * @param publicKey X509 编码的公钥
+     * @return 未登记时返回 null
+     */
+    public ECPoint get(byte[] publicKey) {
+        return hotKeys.getIfPresent(ByteBuffer.wrap(publicKey));
+    }
+
+    public boolean isHot(byte[] publicKey) {
+        return get(publicKey) != null;
+    }
+
+    public long size() {
+        return hotKeys.size();
+    }
+
+    /**
+     * 被降级的热点公钥数量
+     * @return
+     */
+    public long demotionCount() {
+        return demotionCount.get();
+    }
+
+    /**
+     * 当前预计算表估算占用的内存
+     * @return
+     */
+    public long estimatedBytes() {
+        return hotKeys.size() * ESTIMATED_TABLE_BYTES;
+    }
+
+    public void clear() {
+        hotKeys.invalidateAll();
+    }
+
+    /**
+     * 当前引擎不使用登记表时记录警告
+     */
+    private static void warnIfIgnored(ECDSAEngine engine) {
+        if (!(engine instanceof JcaECDSAEngine || engine instanceof Secp256k1Engine || engine instanceof CrossCheckECDSAEngine)) {
+            log.warn("当前 ECDSA 引擎 {} 不使用热点公钥登记表，登记不会加快验签", engine.getName());
+        }
+    }
+}
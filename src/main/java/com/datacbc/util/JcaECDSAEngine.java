@@ -0,0 +1,91 @@
+/*
+ * chenhx
+ * Copyright (C) 2013-2022 All Rights Reserved.
+ */
+package com.datacbc.util;
+
+import org.bouncycastle.jce.provider.BouncyCastleProvider;
+import org.bouncycastle.math.ec.ECPoint;
+
+import java.security.GeneralSecurityException;
+import java.security.PrivateKey;
+import java.security.PublicKey;
+import java.security.Signature;
+
+/**
+ * @author chenhx
+ * @version 0.0.1
+ * @className JcaECDSAEngine.java
+ * @date 2026-10-18 09:49
+ * @description 通过 JCA 接口调用 BouncyCastle 的 ECDSA 引擎，默认引擎
+ * 已登记到 HotKeyRegistry 的热点公钥直接用其预计算表在 secp256k1 曲线上验签，结果与 JCA 一致
+ */
+public class JcaECDSAEngine implements ECDSAEngine {
+
+    public static final String NAME = "bc";
+
+    /**
+     * 线程内复用的摘要签名对象，每次签名前 initSign 重新设置私钥
+     */
+    private static final ThreadLocal<Signature> signSignatureThreadLocal = new ThreadLocal<Signature>() {
+        @Override
+        protected Signature initialValue() {
+            return newDigestSignature();
+        }
+    };
+
+    /**
+     * 线程内复用的摘要验签对象，initVerify 会重置其内部状态，可以安全复用
+     */
+    private static final ThreadLocal<Signature> verifySignatureThreadLocal = new ThreadLocal<Signature>() {
+        @Override
+        protected Signature initialValue() {
+            return newDigestSignature();
+        }
+    };
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    @Override
+    public byte[] signDigest(byte[] digest, byte[] privateKey) throws GeneralSecurityException {
+        return signDigest(digest, ECDSAUtils.decodePrivateKey(privateKey));
+    }
+
+    @Override
+    public byte[] signDigest(byte[] digest, PrivateKey privateKey) throws GeneralSecurityException {
+        Signature signature = signSignatureThreadLocal.get();
+        try {
+            signature.initSign(privateKey, SecureRandomUtils.get());
+            signature.update(digest);
+            return signature.sign();
+        } catch (GeneralSecurityException | RuntimeException e) {
+            // 出现异常时 Signature 内部状态不确定，丢弃后下次重新创建
+            signSignatureThreadLocal.remove();
+            throw e;
+        }
+    }
+
+    @Override
+    public boolean verifyDigest(byte[] digest, byte[] publicKey, byte[] sign) throws GeneralSecurityException {
+        ECPoint hot = HotKeyRegistry.getDefault().get(publicKey);
+        if (hot != null) {
+            return Secp256k1Engine.verifyDigest(digest, hot, sign);
+        }
+        PublicKey pubKey = PublicKeyCache.getDefault().get(publicKey);
+        Signature signature = verifySignatureThreadLocal.get();
+        signature.initVerify(pubKey);
+        signature.update(digest);
+        return signature.verify(sign);
+    }
+
+    private static Signature newDigestSignature() {
+        try {
+            return Signature.getInstance(ECDSAUtils.DIGEST_SIGNATURE_ALGORITHM, BouncyCastleProvider.PROVIDER_NAME);
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Fail to create Signature ! ", e);
+        }
+    }
+}
@@ -0,0 +1,137 @@
+/*
+ * chenhx
+ * Copyright (C) 2013-2022 All Rights Reserved.
+ */
+package com.datacbc.util;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+
+import java.nio.ByteBuffer;
+import java.security.GeneralSecurityException;
+import java.security.PublicKey;
+
+/**
+ * @author chenhx
+ * @version 0.0.1
+ * @className PublicKeyCache.java
+ * @date 2026-10-18 09:44
+ * @description 已解析公钥的有界缓存，key 为 X509 编码的公钥字节
+ */
+public class PublicKeyCache {
+    /**
+     * 默认缓存容量的系统属性名
+     */
+    public static final String MAX_SIZE_PROPERTY = "datacbc.ecdsa.publicKeyCache.maxSize";
+    /**
+     * 默认缓存容量
+     */
+    private static final long DEFAULT_MAX_SIZE = 10000;
+
+    private static final PublicKeyCache DEFAULT = new PublicKeyCache(Long.getLong(MAX_SIZE_PROPERTY, DEFAULT_MAX_SIZE));
+
+    private final Cache<ByteBuffer, Entry> cache;
+
+    public PublicKeyCache(long maxSize) {
+        this.cache = CacheBuilder.newBuilder()
+                .maximumSize(maxSize)
+                .recordStats()
+                .build();
+    }
+
+    /**
+     * ECDSAUtils 与 Wallet 共用的缓存
+     * @return
+     */
+    public static PublicKeyCache getDefault() {
+        return DEFAULT;
+    }
+
+    /**
+     * 获取公钥，未命中时解析并放入缓存
+     * @param encoded X509 编码的公钥字节
+     * @return
+     * @throws GeneralSecurityException 公钥格式错误
+     */
+    public PublicKey get(byte[] encoded) throws GeneralSecurityException {
+        return getEntry(encoded).getPublicKey();
+    }
+
+    /**
+     * 获取缓存项，未命中时解析并放入缓存
+     * @param encoded X509 编码的公钥字节
+     * @return
+     * @throws GeneralSecurityException 公钥格式错误
+     */
+    public Entry getEntry(byte[] encoded) throws GeneralSecurityException {
+        Entry entry = cache.getIfPresent(ByteBuffer.wrap(encoded));
+        if (entry == null) {
+            entry = new Entry(ECDSAUtils.decodePublicKey(encoded));
+            // 拷贝一份作为 key，避免调用方修改数组后污染缓存
+            cache.put(ByteBuffer.wrap(encoded.clone()), entry);
+        }
+        return entry;
+    }
+
+    /**
+     * 只查询缓存，不解析也不计入命中/未命中统计
+     * @param encoded X509 编码的公钥字节
+     * @return 未缓存时返回 null
+     */
+    public Entry peek(byte[] encoded) {
+        return cache.asMap().get(ByteBuffer.wrap(encoded));
+    }
+
+    public long hitCount() {
+        return cache.stats().hitCount();
+    }
+
+    public long missCount() {
+        return cache.stats().missCount();
+    }
+
+    public long evictionCount() {
+        return cache.stats().evictionCount();
+    }
+
+    public long size() {
+        return cache.size();
+    }
+
+    public CacheStats stats() {
+        return cache.stats();
+    }
+
+    public void invalidateAll() {
+        cache.invalidateAll();
+    }
+
+    /**
+     * 缓存项：解析好的公钥，以及按需计算的公钥hash
+     */
+    public static class Entry {
+        private final PublicKey publicKey;
+        private volatile byte[] pubkeyHash;
+
+        Entry(PublicKey publicKey) {
+            this.publicKey = publicKey;
+        }
+
+        public PublicKey getPublicKey() {
+            return publicKey;
+        }
+
+        /**
+         * @return 公钥hash的副本，未计算过时返回 null
+         */
+        public byte[] getPubkeyHash() {
+            byte[] hash = pubkeyHash;
+            return hash == null ? null : hash.clone();
+        }
+
+        public void setPubkeyHash(byte[] pubkeyHash) {
+            this.pubkeyHash = pubkeyHash.clone();
+        }
+    }
+}
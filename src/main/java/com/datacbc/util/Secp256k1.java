@@ -0,0 +1,98 @@
+/*
+ * chenhx
+ * Copyright (C) 2013-2022 All Rights Reserved.
+ */
+package com.datacbc.util;
+
+import org.bouncycastle.asn1.ASN1Encoding;
+import org.bouncycastle.asn1.sec.SECObjectIdentifiers;
+import org.bouncycastle.asn1.x509.AlgorithmIdentifier;
+import org.bouncycastle.asn1.x509.SubjectPublicKeyInfo;
+import org.bouncycastle.asn1.x9.X962Parameters;
+import org.bouncycastle.asn1.x9.X9ECParameters;
+import org.bouncycastle.asn1.x9.X9ObjectIdentifiers;
+import org.bouncycastle.crypto.ec.CustomNamedCurves;
+import org.bouncycastle.crypto.params.ECDomainParameters;
+import org.bouncycastle.math.ec.ECCurve;
+import org.bouncycastle.math.ec.ECPoint;
+
+import java.io.IOException;
+import java.math.BigInteger;
+import java.security.spec.InvalidKeySpecException;
+
+/**
+ * @author chenhx
+ * @version 0.0.1
+ * @className Secp256k1.java
+ * @date 2026-10-18 09:49
+ * @description secp256k1 曲线参数
+ * 使用 BouncyCastle 针对 secp256k1 的专用实现（SecP256K1Curve）：8 个 int 的定长域运算、Jacobian 坐标以及 GLV 自同态，
+ * 与 ECNamedCurveTable/KeyFactory 解析出来的公钥是同一个曲线实例，点上缓存的预计算表可以直接复用
+ */
+public final class Secp256k1 {
+
+    public static final String NAME = "secp256k1";
+
+    public static final X9ECParameters PARAMS = CustomNamedCurves.getByName(NAME);
+
+    public static final ECDomainParameters DOMAIN = new ECDomainParameters(PARAMS.getCurve(), PARAMS.getG(), PARAMS.getN(), PARAMS.getH());
+
+    public static final ECCurve CURVE = PARAMS.getCurve();
+
+    public static final ECPoint G = PARAMS.getG();
+
+    public static final BigInteger N = PARAMS.getN();
+
+    public static final BigInteger HALF_N = N.shiftRight(1);
+
+    private Secp256k1() {
+    }  // Not instantiable
+
+    /**
+     * 将公钥点编码为 X509 格式，与 BouncyCastle 生成的公钥字节（Wallet.publicKey）一致
+     * @param q 公钥点
+     * @return
+     */
+    public static byte[] encodePublicKey(ECPoint q) {
+        try {
+            AlgorithmIdentifier algorithm = new AlgorithmIdentifier(X9ObjectIdentifiers.id_ecPublicKey,
+                    new X962Parameters(SECObjectIdentifiers.secp256k1));
+            return new SubjectPublicKeyInfo(algorithm, q.getEncoded(false)).getEncoded(ASN1Encoding.DER);
+        } catch (IOException e) {
+            throw new IllegalStateException("Fail to encode public key", e);
+        }
+    }
+
+    /**
+     * 解析 X509 格式的公钥，不经过 JCA KeyFactory，也不使用公钥缓存
+     * @param publicKey X509 编码的公钥
+     * @return 公钥点
+     * @throws InvalidKeySpecException 格式错误、不是 secp256k1 公钥或点不在曲线上
+     */
+    public static ECPoint decodePublicKey(byte[] publicKey) throws InvalidKeySpecException {
+        try {
+            SubjectPublicKeyInfo info = SubjectPublicKeyInfo.getInstance(publicKey);
+            X962Parameters params = X962Parameters.getInstance(info.getAlgorithm().getParameters());
+            if (!params.isNamedCurve() || !SECObjectIdentifiers.secp256k1.equals(params.getParameters())) {
+                throw new InvalidKeySpecException("Public key is not on secp256k1");
+            }
+            return CURVE.decodePoint(info.getPublicKeyData().getBytes());
+        } catch (IllegalArgumentException e) {
+            throw new InvalidKeySpecException("Invalid public key", e);
+        }
+    }
+
+    /**
+     * 将摘要转为 ECDSA 使用的整数 e，摘要超过 256 位时只取左边 256 位（与 BouncyCastle ECDSASigner 一致）
+     * @param digest
+     * @return
+     */
+    public static BigInteger calculateE(byte[] digest) {
+        int messageBitLength = digest.length * 8;
+        BigInteger e = new BigInteger(1, digest);
+        if (messageBitLength > N.bitLength()) {
+            e = e.shiftRight(messageBitLength - N.bitLength());
+        }
+        return e;
+    }
+}
@@ -0,0 +1,286 @@
+/*
+ * chenhx
+ * Copyright (C) 2013-2022 All Rights Reserved.
+ */
+package com.datacbc.util;
+
+import org.bouncycastle.asn1.pkcs.PrivateKeyInfo;
+import org.bouncycastle.crypto.digests.SHA256Digest;
+import org.bouncycastle.crypto.signers.HMacDSAKCalculator;
+import org.bouncycastle.crypto.signers.StandardDSAEncoding;
+import org.bouncycastle.jcajce.provider.asymmetric.ec.BCECPublicKey;
+import org.bouncycastle.math.ec.ECAlgorithms;
+import org.bouncycastle.math.ec.ECPoint;
+import org.bouncycastle.math.ec.FixedPointCombMultiplier;
+import org.bouncycastle.util.BigIntegers;
+
+import java.io.IOException;
+import java.math.BigInteger;
+import java.security.GeneralSecurityException;
+import java.security.InvalidKeyException;
+import java.security.PrivateKey;
+import java.security.PublicKey;
+import java.security.SignatureException;
+import java.security.interfaces.ECPrivateKey;
+import java.security.spec.InvalidKeySpecException;
+
+/**
+ * @author chenhx
+ * @version 0.0.1
+ * @className Secp256k1Engine.java
+ * @date 2026-10-18 09:49
+ * @description 直接在 secp256k1 曲线上做运算的 ECDSA 引擎，绕过 JCA 的 Provider 查找、密钥对象和 Signature 状态机
+ * 验签：u1*G + u2*Q 通过 ECAlgorithms.sumOfTwoMultiplies 计算（GLV 分解 + 交错 wNAF，即 Shamir 技巧），
+ * G 与已缓存公钥上的 wNAF 预计算表会被反复复用
+ * 签名：k 按 RFC6979 确定性生成，k*G 使用固定基点的梳状预计算表
+ */
+public class Secp256k1Engine implements ECDSAEngine {
+
+    public static final String NAME = "secp256k1";
+
+    /**
+     * 可恢复签名长度：r(32) + s(32) + recId(1)
+     */
+    public static final int RECOVERABLE_SIGNATURE_LENGTH = 65;
+
+    private static final FixedPointCombMultiplier BASE_MULTIPLIER = new FixedPointCombMultiplier();
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    @Override
+    public byte[] signDigest(byte[] digest, byte[] privateKey) throws GeneralSecurityException {
+        BigInteger d = decodePrivateKey(privateKey);
+        BigInteger[] rs = sign(digest, d);
+        try {
+            return StandardDSAEncoding.INSTANCE.encode(Secp256k1.N, rs[0], rs[1]);
+        } catch (IOException e) {
+            throw new SignatureException("Fail to encode signature", e);
+        }
+    }
+
+    @Override
+    public byte[] signDigest(byte[] digest, PrivateKey privateKey) throws GeneralSecurityException {
+        BigInteger[] rs = sign(digest, privateScalar(privateKey));
+        try {
+            return StandardDSAEncoding.INSTANCE.encode(Secp256k1.N, rs[0], rs[1]);
+        } catch (IOException e) {
+            throw new SignatureException("Fail to encode signature", e);
+        }
+    }
+
+    @Override
+    public boolean verifyDigest(byte[] digest, byte[] publicKey, byte[] sign) throws GeneralSecurityException {
+        return verifyDigest(digest, decodePublicKey(publicKey), sign);
+    }
+
+    /**
+     * 使用公钥点校验 DER 编码的签名
+     * @param digest 摘要
+     * @param q 公钥点
+     * @param sign DER 编码的签名
+     * @return
+     * @throws SignatureException 签名格式错误
+     */
+    static boolean verifyDigest(byte[] digest, ECPoint q, byte[] sign) throws SignatureException {
+        BigInteger[] rs;
+        try {
+            rs = StandardDSAEncoding.INSTANCE.decode(Secp256k1.N, sign);
+        } catch (IOException | IllegalArgumentException e) {
+            throw new SignatureException("Invalid signature encoding", e);
+        }
+        return verify(digest, q, rs[0], rs[1]);
+    }
+
+    /**
+     * 对摘要签名
+     * @param digest 摘要
+     * @param d 私钥标量
+     * @return r, s
+     */
+    public static BigInteger[] sign(byte[] digest, BigInteger d) {
+        BigInteger n = Secp256k1.N;
+        BigInteger e = Secp256k1.calculateE(digest);
+        HMacDSAKCalculator kCalculator = new HMacDSAKCalculator(new SHA256Digest());
+        kCalculator.init(n, d, digest);
+        BigInteger r, s;
+        do {
+            BigInteger k;
+            do {
+                k = kCalculator.nextK();
+                ECPoint p = BASE_MULTIPLIER.multiply(Secp256k1.G, k).normalize();
+                r = p.getAffineXCoord().toBigInteger().mod(n);
+            } while (r.signum() == 0);
+            s = BigIntegers.modOddInverse(n, k).multiply(e.add(d.multiply(r))).mod(n);
+        } while (s.signum() == 0);
+        return new BigInteger[]{r, s};
+    }
+
+    /**
+     * 生成可恢复公钥的签名，s 统一取低半区
+     * @param digest 摘要
+     * @param d 私钥标量
+     * @return r(32) + s(32) + recId(1)，共 65 字节
+     */
+    public static byte[] signRecoverable(byte[] digest, BigInteger d) {
+        BigInteger n = Secp256k1.N;
+        BigInteger e = Secp256k1.calculateE(digest);
+        HMacDSAKCalculator kCalculator = new HMacDSAKCalculator(new SHA256Digest());
+        kCalculator.init(n, d, digest);
+        while (true) {
+            BigInteger k = kCalculator.nextK();
+            ECPoint p = BASE_MULTIPLIER.multiply(Secp256k1.G, k).normalize();
+            BigInteger x = p.getAffineXCoord().toBigInteger();
+            BigInteger r = x.mod(n);
+            if (r.signum() == 0) {
+                continue;
+            }
+            BigInteger s = BigIntegers.modOddInverse(n, k).multiply(e.add(d.multiply(r))).mod(n);
+            if (s.signum() == 0) {
+                continue;
+            }
+            // recId 第 0 位为 R.y 的奇偶，第 1 位表示 R.x 是否大于等于 n
+            int recId = (p.getAffineYCoord().testBitZero() ? 1 : 0) | (x.compareTo(n) >= 0 ? 2 : 0);
+            if (s.compareTo(Secp256k1.HALF_N) > 0) {
+                // s 取反后对应的 R 为 -R，y 的奇偶随之翻转
+                s = n.subtract(s);
+                recId ^= 1;
+            }
+            byte[] sign = new byte[RECOVERABLE_SIGNATURE_LENGTH];
+            BigIntegers.asUnsignedByteArray(r, sign, 0, 32);
+            BigIntegers.asUnsignedByteArray(s, sign, 32, 32);
+            sign[64] = (byte) recId;
+            return sign;
+        }
+    }
+
+    /**
+     * 由可恢复签名与摘要恢复公钥点
+     * @param digest 摘要
+     * @param sign r(32) + s(32) + recId(1)
+     * @return 公钥点
+     * @throws SignatureException 签名格式错误或无法恢复
+     */
+    public static ECPoint recoverPublicKey(byte[] digest, byte[] sign) throws SignatureException {
+        if (sign == null || sign.length != RECOVERABLE_SIGNATURE_LENGTH || (sign[64] & 0xFF) > 3) {
+            throw new SignatureException("Invalid recoverable signature");
+        }
+        BigInteger n = Secp256k1.N;
+        BigInteger r = BigIntegers.fromUnsignedByteArray(sign, 0, 32);
+        BigInteger s = BigIntegers.fromUnsignedByteArray(sign, 32, 32);
+        int recId = sign[64];
+        if (r.signum() <= 0 || r.compareTo(n) >= 0 || s.signum() <= 0 || s.compareTo(n) >= 0) {
+            throw new SignatureException("Invalid recoverable signature");
+        }
+        BigInteger x = (recId & 2) != 0 ? r.add(n) : r;
+        if (x.compareTo(Secp256k1.CURVE.getField().getCharacteristic()) >= 0) {
+            throw new SignatureException("Invalid recoverable signature");
+        }
+        // 按压缩格式还原 R 点
+        byte[] encoded = new byte[33];
+        encoded[0] = (byte) ((recId & 1) == 0 ? 0x02 : 0x03);
+        BigIntegers.asUnsignedByteArray(x, encoded, 1, 32);
+        ECPoint point;
+        try {
+            point = Secp256k1.CURVE.decodePoint(encoded);
+        } catch (IllegalArgumentException e) {
+            throw new SignatureException("Invalid recoverable signature", e);
+        }
+        // Q = r^-1 * (s*R - e*G)
+        BigInteger rInv = BigIntegers.modOddInverseVar(n, r);
+        BigInteger e = Secp256k1.calculateE(digest);
+        BigInteger u1 = n.subtract(e).multiply(rInv).mod(n);
+        BigInteger u2 = s.multiply(rInv).mod(n);
+        ECPoint q = ECAlgorithms.sumOfTwoMultiplies(Secp256k1.G, u1, point, u2).normalize();
+        if (q.isInfinity()) {
+            throw new SignatureException("Invalid recoverable signature");
+        }
+        return q;
+    }
+
+    /**
+     * 校验对摘要的签名
+     * @param digest 摘要
+     * @param q 公钥点
+     * @param r 签名 r
+     * @param s 签名 s
+     * @return
+     */
+    public static boolean verify(byte[] digest, ECPoint q, BigInteger r, BigInteger s) {
+        BigInteger n = Secp256k1.N;
+        if (r.signum() <= 0 || r.compareTo(n) >= 0 || s.signum() <= 0 || s.compareTo(n) >= 0) {
+            return false;
+        }
+        BigInteger e = Secp256k1.calculateE(digest);
+        BigInteger w = BigIntegers.modOddInverseVar(n, s);
+        BigInteger u1 = e.multiply(w).mod(n);
+        BigInteger u2 = r.multiply(w).mod(n);
+        ECPoint point = ECAlgorithms.sumOfTwoMultiplies(Secp256k1.G, u1, q, u2).normalize();
+        if (point.isInfinity()) {
+            return false;
+        }
+        return point.getAffineXCoord().toBigInteger().mod(n).equals(r);
+    }
+
+    /**
+     * 优先取热点公钥登记表中带大窗口预计算表的点，其次从公钥缓存中取出公钥点，
+     * 点对象在缓存期间保持不变，其上的预计算表会被复用
+     * @param publicKey X509 编码的公钥
+     * @return
+     * @throws GeneralSecurityException
+     */
+    static ECPoint decodePublicKey(byte[] publicKey) throws GeneralSecurityException {
+        ECPoint hot = HotKeyRegistry.getDefault().get(publicKey);
+        if (hot != null) {
+            return hot;
+        }
+        PublicKey key = PublicKeyCache.getDefault().get(publicKey);
+        if (!(key instanceof BCECPublicKey)) {
+            throw new InvalidKeyException("Unsupported public key");
+        }
+        ECPoint q = ((BCECPublicKey) key).getQ();
+        if (q.getCurve() != Secp256k1.CURVE) {
+            throw new InvalidKeyException("Public key is not on secp256k1");
+        }
+        return q;
+    }
+
+    /**
+     * 取出私钥对象中的标量 d，不重新编码
+     * @param privateKey
+     * @return 私钥标量 d
+     * @throws GeneralSecurityException
+     */
+    static BigInteger privateScalar(PrivateKey privateKey) throws GeneralSecurityException {
+        if (!(privateKey instanceof ECPrivateKey)) {
+            throw new InvalidKeyException("Unsupported private key");
+        }
+        BigInteger d = ((ECPrivateKey) privateKey).getS();
+        if (d.signum() <= 0 || d.compareTo(Secp256k1.N) >= 0) {
+            throw new InvalidKeyException("Private key out of range");
+        }
+        return d;
+    }
+
+    /**
+     * 解析 PKCS8 编码的私钥，直接读取 ASN.1 结构，不创建 JCA 密钥对象
+     * @param privateKey
+     * @return 私钥标量 d
+     * @throws GeneralSecurityException
+     */
+    static BigInteger decodePrivateKey(byte[] privateKey) throws GeneralSecurityException {
+        BigInteger d;
+        try {
+            PrivateKeyInfo info = PrivateKeyInfo.getInstance(privateKey);
+            d = org.bouncycastle.asn1.sec.ECPrivateKey.getInstance(info.parsePrivateKey()).getKey();
+        } catch (IOException | RuntimeException e) {
+            throw new InvalidKeySpecException("Invalid private key", e);
+        }
+        if (d.signum() <= 0 || d.compareTo(Secp256k1.N) >= 0) {
+            throw new InvalidKeySpecException("Private key out of range");
+        }
+        return d;
+    }
+}
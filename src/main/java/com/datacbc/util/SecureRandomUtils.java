@@ -0,0 +1,151 @@
+/*
+ * chenhx
+ * Copyright (C) 2013-2022 All Rights Reserved.
+ */
+package com.datacbc.util;
+
+import org.bouncycastle.crypto.digests.SHA256Digest;
+import org.bouncycastle.crypto.prng.EntropySource;
+import org.bouncycastle.crypto.prng.EntropySourceProvider;
+import org.bouncycastle.crypto.prng.SP800SecureRandom;
+import org.bouncycastle.crypto.prng.SP800SecureRandomBuilder;
+import org.bouncycastle.util.Pack;
+
+import java.security.SecureRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @author chenhx
+ * @version 0.0.1
+ * @className SecureRandomUtils.java
+ * @date 2026-10-18 10:09
+ * @description 随机数服务
+ * 每个线程持有一个 Hash_DRBG（SHA-256，NIST SP 800-90A），首次使用时从操作系统取一次种子，之后在线程内生成，互不竞争；
+ * 按使用次数和时间定期从操作系统重新取种子。
+ * 密钥、IV、种子以及签名随机数统一从这里获取。
+ * 返回的 SecureRandom 只能在当前线程使用，不要跨线程共享
+ */
+public final class SecureRandomUtils {
+    /**
+     * 重新取种子前允许的使用次数的系统属性名
+     */
+    public static final String RESEED_REQUESTS_PROPERTY = "datacbc.random.reseedRequests";
+    /**
+     * 重新取种子的时间间隔的系统属性名，单位毫秒
+     */
+    public static final String RESEED_INTERVAL_PROPERTY = "datacbc.random.reseedIntervalMillis";
+
+    private static final long RESEED_REQUESTS = Long.getLong(RESEED_REQUESTS_PROPERTY, 1L << 16);
+    private static final long RESEED_INTERVAL_NANOS = TimeUnit.MILLISECONDS.toNanos(
+            Long.getLong(RESEED_INTERVAL_PROPERTY, TimeUnit.MINUTES.toMillis(10)));
+    /**
+     * DRBG 安全强度，单位 bit
+     */
+    private static final int SECURITY_STRENGTH = 256;
+
+    /**
+     * 操作系统随机源，只在取种子和重新取种子时使用
+     * Linux 下读 /dev/urandom，不会因为熵不足而阻塞
+     */
+    private static final SecureRandom OS_RANDOM = new SecureRandom();
+
+    private static final ThreadLocal<ThreadRandom> randomThreadLocal = ThreadLocal.withInitial(ThreadRandom::new);
+
+    private SecureRandomUtils() {
+    }  // Not instantiable
+
+    /**
+     * 当前线程的 DRBG，达到重新取种子条件时先重新取种子
+     * @return
+     */
+    public static SecureRandom get() {
+        return randomThreadLocal.get().acquire();
+    }
+
+    /**
+     * 用随机字节填满数组
+     * @param bytes
+     */
+    public static void nextBytes(byte[] bytes) {
+        get().nextBytes(bytes);
+    }
+
+    /**
+     * 生成随机字节
+     * @param length 长度
+     * @return
+     */
+    public static byte[] randomBytes(int length) {
+        byte[] bytes = new byte[length];
+        get().nextBytes(bytes);
+        return bytes;
+    }
+
+    /**
+     * 立即为当前线程的 DRBG 重新取种子
+     */
+    public static void reseed() {
+        randomThreadLocal.get().reseed();
+    }
+
+    private static final class ThreadRandom {
+        private final SP800SecureRandom random;
+        private long requests;
+        private long seededAt;
+
+        ThreadRandom() {
+            // 线程 id + 时间作为个性化串，保证各线程的 DRBG 状态互不相同
+            byte[] personalization = new byte[16];
+            Pack.longToBigEndian(Thread.currentThread().getId(), personalization, 0);
+            Pack.longToBigEndian(System.nanoTime(), personalization, 8);
+            byte[] nonce = new byte[SECURITY_STRENGTH / 16];
+            OS_RANDOM.nextBytes(nonce);
+            this.random = new SP800SecureRandomBuilder(new OsEntropySourceProvider())
+                    .setPersonalizationString(personalization)
+                    .setSecurityStrength(SECURITY_STRENGTH)
+                    .setEntropyBitsRequired(SECURITY_STRENGTH)
+                    .buildHash(new SHA256Digest(), nonce, false);
+            this.seededAt = System.nanoTime();
+        }
+
+        SecureRandom acquire() {
+            if (++requests >= RESEED_REQUESTS || System.nanoTime() - seededAt >= RESEED_INTERVAL_NANOS) {
+                reseed();
+            }
+            return random;
+        }
+
+        void reseed() {
+            random.reseed(null);
+            requests = 0;
+            seededAt = System.nanoTime();
+        }
+    }
+
+    /**
+     * 从操作系统随机源取熵，使用 nextBytes 而不是 generateSeed，避免读取 /dev/random 时阻塞
+     */
+    private static final class OsEntropySourceProvider implements EntropySourceProvider {
+        @Override
+        public EntropySource get(int bitsRequired) {
+            return new EntropySource() {
+                @Override
+                public boolean isPredictionResistant() {
+                    return false;
+                }
+
+                @Override
+                public byte[] getEntropy() {
+                    byte[] entropy = new byte[(bitsRequired + 7) / 8];
+                    OS_RANDOM.nextBytes(entropy);
+                    return entropy;
+                }
+
+                @Override
+                public int entropySize() {
+                    return bitsRequired;
+                }
+            };
+        }
+    }
+}
@@ -4,14 +4,46 @@
  */
 package com.datacbc.util;
 
+import com.datacbc.wallet.Address;
+import com.datacbc.wallet.AddressSerializer;
+import com.datacbc.wallet.Wallet;
+import com.datacbc.wallet.WalletSerializer;
 import com.esotericsoftware.kryo.Kryo;
+import com.esotericsoftware.kryo.KryoException;
+import com.esotericsoftware.kryo.ReferenceResolver;
+import com.esotericsoftware.kryo.Registration;
+import com.esotericsoftware.kryo.Serializer;
+import com.esotericsoftware.kryo.io.ByteBufferInput;
+import com.esotericsoftware.kryo.io.ByteBufferOutput;
 import com.esotericsoftware.kryo.io.Input;
 import com.esotericsoftware.kryo.io.Output;
 import com.esotericsoftware.kryo.serializers.DefaultSerializers;
+import com.esotericsoftware.kryo.util.MapReferenceResolver;
+import com.esotericsoftware.kryo.util.Pool;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.CopyOnWriteArraySet;
@@ -27,25 +59,127 @@ public class SerializeUtils {
      * 2.如果类已知且对象可以为null： kryo.writeObjectOrNull(output, someObject); SomeClass someObject = kryo.readObjectOrNull(input, SomeClass.class);
      * 3.如果类已知且对象不能为null:  kryo.writeObject(output, someObject); SomeClass someObject = kryo.readObject(input, SomeClass.class);
      */
-    static private final ThreadLocal<Kryo> kryoThreadLocal = new ThreadLocal<Kryo>() {
-        protected Kryo initialValue() {
-            Kryo kryo = new Kryo();
-            //支持对象循环引用（否则会栈溢出）
-            kryo.setReferences(true); //默认值就是 true，添加此行的目的是为了提醒维护者，不要改变这个配置
-            //不强制要求注册类（注册行为无法保证多个 JVM 内同一个类的注册编号相同；而且业务系统中大量的 Class 也难以一一注册）
-            kryo.setRegistrationRequired(false); //默认值就是 false，添加此行的目的是为了提醒维护者，不要改变这个配置
-            // 在此处配置kryo对象的使用示例，如循环引用等
-            kryo.register(CopyOnWriteArraySet.class, 1);
-            kryo.register(CopyOnWriteArrayList.class, 2);
-            kryo.register(ConcurrentHashMap.class, 3);
+    /**
+     * 池中保留的 Kryo/Output/Input 数量上限的系统属性名，超出的在归还时丢弃
+     */
+    public static final String POOL_SIZE_PROPERTY = "datacbc.kryo.poolSize";
+    /**
+     * 归还时 Output 缓冲区超过该大小则换回初始缓冲区，避免池中长期持有大数组
+     */
+    private static final int MAX_POOLED_BUFFER_SIZE = 1024 * 1024;
+    private static final int INITIAL_BUFFER_SIZE = 4096;
+    private static final ByteBuffer EMPTY_BUFFER = ByteBuffer.allocate(0);
+    /**
+     * 流式读写时与流之间的缓冲区大小，内存占用只有该缓冲区加单条记录
+     */
+    private static final int STREAM_BUFFER_SIZE = 64 * 1024;
+    private static final int POOL_SIZE = Integer.getInteger(POOL_SIZE_PROPERTY, Runtime.getRuntime().availableProcessors() * 4);
+    /**
+     * 严格模式的系统属性名，为 true 时只能序列化已注册的类，遇到未注册的类直接报错，不再写类全名
+     */
+    public static final String REGISTRATION_REQUIRED_PROPERTY = "datacbc.kryo.registrationRequired";
+    private static final boolean REGISTRATION_REQUIRED = Boolean.getBoolean(REGISTRATION_REQUIRED_PROPERTY);
+    /**
+     * 通过 register 追加的注册，每个新建的 Kryo 按顺序重放
+     */
+    private static final List<CustomRegistration> customRegistrations = new CopyOnWriteArrayList<>();
+    /**
+     * 每次追加注册换一个新对象，归还时版本不一致的 Kryo 直接丢弃，池中只保留注册完整的实例
+     */
+    private static volatile Object registrationVersion = new Object();
+    /**
+     * 声明为无环（对象图是树）的类型，写入和读取时都不记录引用，省去身份表的查找和插入
+     * 会改变该类型的字节格式，必须在启动时、读写该类型的数据之前声明，各节点保持一致
+     */
+    private static final Set<Class<?>> acyclicTypes = ConcurrentHashMap.newKeySet();
+
+    static {
+        acyclicTypes.add(Address.class);
+        acyclicTypes.add(SignedDigest.class);
+    }
+
+    /**
+     * Kryo 非线程安全，使用时从池中取出，用完归还；池有上限，线程再多也不会无限创建
+     */
+    private static final Pool<Kryo> kryoPool = new Pool<Kryo>(true, false, POOL_SIZE) {
+        @Override
+        protected Kryo create() {
+            return newKryo();
+        }
+    };
+    /**
+     * 不记录引用的 Kryo，用于 serializeAcyclic/deserializeAcyclic，调用方保证整个对象图无环
+     */
+    private static final Pool<Kryo> acyclicKryoPool = new Pool<Kryo>(true, false, POOL_SIZE) {
+        @Override
+        protected Kryo create() {
+            return newKryo(null);
+        }
+    };
+    /**
+     * 开启断言时检查对象图是否为树的 Kryo，只在 -ea 下使用
+     */
+    private static final Pool<Kryo> treeCheckKryoPool = new Pool<Kryo>(true, false, POOL_SIZE) {
+        @Override
+        protected Kryo create() {
+            return newKryo(new TreeCheckingReferenceResolver());
+        }
+    };
+    private static final Pool<Output> outputPool = new Pool<Output>(true, false, POOL_SIZE) {
+        @Override
+        protected Output create() {
+            return new Output(INITIAL_BUFFER_SIZE, -1);
+        }
+    };
+    private static final Pool<Input> inputPool = new Pool<Input>(true, false, POOL_SIZE) {
+        @Override
+        protected Input create() {
+            return new Input();
+        }
+    };
+    private static final Pool<ByteBufferOutput> byteBufferOutputPool = new Pool<ByteBufferOutput>(true, false, POOL_SIZE) {
+        @Override
+        protected ByteBufferOutput create() {
+            return new ByteBufferOutput();
+        }
+    };
+    private static final Pool<ByteBufferInput> byteBufferInputPool = new Pool<ByteBufferInput>(true, false, POOL_SIZE) {
+        @Override
+        protected ByteBufferInput create() {
+            return new ByteBufferInput();
+        }
+    };
+
+    private static Kryo newKryo() {
+        return newKryo(new AcyclicAwareReferenceResolver());
+    }
+
+    /**
+     * @param referenceResolver 为 null 时不记录引用
+     */
+    private static Kryo newKryo(ReferenceResolver referenceResolver) {
+        // 先读版本再注册，注册过程中有新的注册时该实例归还时会被丢弃
+        Object version = registrationVersion;
+        Kryo kryo = new VersionedKryo(referenceResolver, version);
+        //默认支持对象循环引用（否则会栈溢出），不要改变这个配置；只有声明为无环的类型和 acyclic 方法不记录引用
+        kryo.setReferences(referenceResolver != null);
+        //默认不强制要求注册类（业务系统中大量的 Class 难以一一注册），未注册的类写类全名；
+        //核心类型使用下面的固定编号，多个 JVM 之间编号一致。datacbc.kryo.registrationRequired=true 时只允许已注册的类
+        kryo.setRegistrationRequired(REGISTRATION_REQUIRED);
+        // 在此处配置kryo对象的使用示例，如循环引用等
+        kryo.register(CopyOnWriteArraySet.class, 1);
+        kryo.register(CopyOnWriteArrayList.class, 2);
+        kryo.register(ConcurrentHashMap.class, 3);
+        // 0-8 已被 Kryo 内置的基本类型占用（4-7 为 byte、char、short、long），下面的 Block 等不能直接使用这些编号；
+        // 链上的核心类型由对应模块通过 register 使用未被占用的编号注册专用序列化器，编号冲突时 register 直接报错
 //            kryo.register(Block.class, 4);
 //            kryo.register(Transaction.class, 5);
 //            kryo.register(TXInput.class, 6);
 //            kryo.register(TXOutput.class, 7);
-            kryo.register(HashMap.class, 9);
-            kryo.register(String.class, 10);
-            kryo.register(ArrayList.class, 11);
-            kryo.register(HashSet.class, 12);
+        kryo.register(HashMap.class, 9);
+        kryo.register(String.class, 10);
+        kryo.register(ArrayList.class, 11);
+        kryo.register(HashSet.class, 12);
 //            kryo.register(AuthInfoResp.class, 13);
 //            kryo.register(AuthInfoReq.class, 14);
 //            kryo.register(Byte[].class, DefaultArraySerializers.ByteArraySerializer.class,101);
@@ -57,18 +191,85 @@ public class SerializeUtils {
 //            kryo.register(Double[].class, DefaultArraySerializers.DoubleArraySerializer.class);
 //            kryo.register(Boolean[].class, DefaultArraySerializers.BooleanArraySerializer.class);
 
-            kryo.register(Integer.class, new DefaultSerializers.IntSerializer());
-            kryo.register(Float.class, new DefaultSerializers.FloatSerializer());
-            kryo.register(Boolean.class, new DefaultSerializers.BooleanSerializer());
-            kryo.register(Byte.class, new DefaultSerializers.IntSerializer());
-            kryo.register(Character.class, new DefaultSerializers.IntSerializer());
-            kryo.register(Short.class, new DefaultSerializers.ShortSerializer());
-            kryo.register(Long.class, new DefaultSerializers.LongSerializer());
-            kryo.register(Double.class, new DefaultSerializers.DoubleSerializer());
-            return kryo;
-        }
-        ;
-    };
+        kryo.register(Integer.class, new DefaultSerializers.IntSerializer());
+        kryo.register(Float.class, new DefaultSerializers.FloatSerializer());
+        kryo.register(Boolean.class, new DefaultSerializers.BooleanSerializer());
+        kryo.register(Byte.class, new DefaultSerializers.IntSerializer());
+        kryo.register(Character.class, new DefaultSerializers.IntSerializer());
+        kryo.register(Short.class, new DefaultSerializers.ShortSerializer());
+        kryo.register(Long.class, new DefaultSerializers.LongSerializer());
+        kryo.register(Double.class, new DefaultSerializers.DoubleSerializer());
+        // 0-8 是 Kryo 内置的基本类型编号，13、14 由上面的 Float、Boolean 自动分配，已有数据依赖这些编号，不要改动；
+        // 新增的注册放在这里并使用未被占用的编号，保证上面自动分配的编号不变
+        // 地址固定 20 字节，数据ID固定 32 字节，签名 varint 长度加内容
+        kryo.register(Address.class, new AddressSerializer(), 15);
+        kryo.register(SignedDigest.class, new SignedDigestSerializer(), 16);
+        // 密钥、hash 等字节数组，严格模式下也需要注册
+        kryo.register(byte[].class, 17);
+        // 钱包使用专用序列化器，直接读取密钥字节，不经过会生成密钥的无参构造
+        kryo.register(Wallet.class, new WalletSerializer(), 18);
+        for (CustomRegistration registration : customRegistrations) {
+            kryo.register(registration.type, registration.serializer, registration.id);
+        }
+        return kryo;
+    }
+
+    /**
+     * 注册类型及专用序列化器，使用固定编号，之后新建的 Kryo 都会带上该注册
+     * 序列化器会被多个 Kryo 实例共享，必须无状态。应在启动时、首次序列化该类型之前注册；
+     * 已经在池中的 Kryo 归还时丢弃，不会出现部分实例缺少注册的情况
+     *
+     * @param type 类型
+     * @param serializer 序列化器
+     * @param id 注册编号，不能与内置编号或其他类型的编号重复
+     */
+    public static <T> void register(Class<T> type, Serializer<? super T> serializer, int id) {
+        register(type, serializer, id, false);
+    }
+
+    /**
+     * 注册类型及专用序列化器，使用固定编号
+     *
+     * @param type 类型
+     * @param serializer 序列化器
+     * @param id 注册编号，不能与内置编号或其他类型的编号重复
+     * @param acyclic 该类型的对象图是否无环且没有共享的可变对象，为 true 时写入该类型不记录引用；
+     *                会改变该类型的字节格式，已有数据的类型不要改
+     */
+    public static synchronized <T> void register(Class<T> type, Serializer<? super T> serializer, int id, boolean acyclic) {
+        if (type == null || serializer == null) {
+            throw new IllegalArgumentException("type and serializer must not be null");
+        }
+        Registration existing = newKryo().getRegistration(id);
+        if (existing != null && existing.getType() != type) {
+            throw new IllegalArgumentException("kryo id " + id + " already registered for " + existing.getType().getName());
+        }
+        customRegistrations.add(new CustomRegistration(type, serializer, id));
+        if (acyclic) {
+            acyclicTypes.add(type);
+        }
+        registrationVersion = new Object();
+        kryoPool.clear();
+        acyclicKryoPool.clear();
+        treeCheckKryoPool.clear();
+    }
+
+    /**
+     * 是否声明为无环类型
+     * @param type
+     * @return
+     */
+    public static boolean isAcyclic(Class<?> type) {
+        return acyclicTypes.contains(type);
+    }
+
+    /**
+     * 是否开启了严格模式
+     * @return
+     */
+    public static boolean isRegistrationRequired() {
+        return REGISTRATION_REQUIRED;
+    }
 
     /**
      * 反序列化
@@ -80,10 +281,16 @@ public class SerializeUtils {
         if(bytes==null){
             return null;
         }
-        Input input = new Input(bytes);
-        Object obj = kryoThreadLocal.get().readClassAndObject(input);
-        input.close();
-        return obj;
+        Kryo kryo = kryoPool.obtain();
+        Input input = inputPool.obtain();
+        try {
+            input.setBuffer(bytes);
+            return kryo.readClassAndObject(input);
+        } finally {
+            input.setBuffer(ByteUtils.EMPTY_ARRAY);
+            inputPool.free(input);
+            freeKryo(kryoPool, kryo);
+        }
     }
 
     /**
@@ -95,10 +302,60 @@ public class SerializeUtils {
         if(bytes==null){
             return null;
         }
-        Input input = new Input(bytes);
-        T obj = kryoThreadLocal.get().readObjectOrNull(input,aClass);
-        input.close();
-        return obj;
+        Kryo kryo = kryoPool.obtain();
+        Input input = inputPool.obtain();
+        try {
+            input.setBuffer(bytes);
+            return kryo.readObjectOrNull(input, aClass);
+        } finally {
+            input.setBuffer(ByteUtils.EMPTY_ARRAY);
+            inputPool.free(input);
+            freeKryo(kryoPool, kryo);
+        }
+    }
+
+    /**
+     * 从 ByteBuffer 反序列化，直接读取 buffer 的 [position, limit)，不复制
+     * 读取完成后 buffer 的 position 移到对象末尾，可以连续读取多个对象
+     *
+     * @param buffer 堆内或堆外 ByteBuffer
+     * @return
+     */
+    public static Object deserialize(ByteBuffer buffer) {
+        Kryo kryo = kryoPool.obtain();
+        ByteBufferInput input = byteBufferInputPool.obtain();
+        try {
+            input.setBuffer(buffer);
+            Object obj = kryo.readClassAndObject(input);
+            buffer.position(input.position());
+            return obj;
+        } finally {
+            input.setBuffer(EMPTY_BUFFER);
+            byteBufferInputPool.free(input);
+            freeKryo(kryoPool, kryo);
+        }
+    }
+
+    /**
+     * 从 ByteBuffer 反序列化成对象，直接读取 buffer 的 [position, limit)，不复制
+     * 读取完成后 buffer 的 position 移到对象末尾
+     *
+     * @param buffer 堆内或堆外 ByteBuffer
+     * @return
+     */
+    public static <T> T deserialize(ByteBuffer buffer, Class<T> aClass) {
+        Kryo kryo = kryoPool.obtain();
+        ByteBufferInput input = byteBufferInputPool.obtain();
+        try {
+            input.setBuffer(buffer);
+            T obj = kryo.readObjectOrNull(input, aClass);
+            buffer.position(input.position());
+            return obj;
+        } finally {
+            input.setBuffer(EMPTY_BUFFER);
+            byteBufferInputPool.free(input);
+            freeKryo(kryoPool, kryo);
+        }
     }
 
     /**
@@ -111,11 +368,16 @@ public class SerializeUtils {
         if(object==null){
             return null;
         }
-        Output output = new Output(4096, -1);
-        kryoThreadLocal.get().writeClassAndObject(output, object);
-        byte[] bytes = output.toBytes();
-        output.close();
-        return bytes;
+        assert !acyclicTypes.contains(object.getClass()) || checkTree(object);
+        Kryo kryo = kryoPool.obtain();
+        Output output = outputPool.obtain();
+        try {
+            kryo.writeClassAndObject(output, object);
+            return output.toBytes();
+        } finally {
+            freeOutput(output);
+            freeKryo(kryoPool, kryo);
+        }
     }
     /**
      * 序列化
@@ -127,11 +389,438 @@ public class SerializeUtils {
         if(object==null){
             return null;
         }
-        Output output = new Output(4096, -1);
-        kryoThreadLocal.get().writeObjectOrNull(output, object,tClass);
-        byte[] bytes = output.toBytes();
-        output.close();
-        return bytes;
+        assert !acyclicTypes.contains(tClass) || checkTree(object);
+        Kryo kryo = kryoPool.obtain();
+        Output output = outputPool.obtain();
+        try {
+            kryo.writeObjectOrNull(output, object, tClass);
+            return output.toBytes();
+        } finally {
+            freeOutput(output);
+            freeKryo(kryoPool, kryo);
+        }
+    }
+
+    /**
+     * 序列化到调用方提供的 ByteBuffer，从 position 开始写入，不经过中间数组
+     * 写入完成后 position 移到对象末尾；空间不足时抛出 KryoBufferOverflowException，position 保持不变
+     *
+     * @param object 需要序列化的对象
+     * @param buffer 堆内或堆外 ByteBuffer
+     * @return 写入的字节数
+     */
+    public static int serialize(Object object, ByteBuffer buffer) {
+        assert object == null || !acyclicTypes.contains(object.getClass()) || checkTree(object);
+        Kryo kryo = kryoPool.obtain();
+        ByteBufferOutput output = byteBufferOutputPool.obtain();
+        int start = buffer.position();
+        try {
+            output.setBuffer(buffer);
+            kryo.writeClassAndObject(output, object);
+            output.flush();
+            return buffer.position() - start;
+        } catch (RuntimeException e) {
+            buffer.position(start);
+            throw e;
+        } finally {
+            output.setBuffer(EMPTY_BUFFER);
+            byteBufferOutputPool.free(output);
+            freeKryo(kryoPool, kryo);
+        }
+    }
+
+    /**
+     * 序列化到输出流，使用池中的缓冲区，写完后 flush，不关闭流
+     *
+     * @param object 需要序列化的对象
+     * @param outputStream 输出流
+     */
+    public static void serialize(Object object, OutputStream outputStream) {
+        assert object == null || !acyclicTypes.contains(object.getClass()) || checkTree(object);
+        Kryo kryo = kryoPool.obtain();
+        Output output = outputPool.obtain();
+        try {
+            output.setOutputStream(outputStream);
+            kryo.writeClassAndObject(output, object);
+            output.flush();
+        } finally {
+            output.setOutputStream(null);
+            freeOutput(output);
+            freeKryo(kryoPool, kryo);
+        }
+    }
+
+    /**
+     * 不记录引用的序列化，整个对象图（包括未声明为无环的类型）都不记录引用，比 serialize 快
+     * 对象图必须无环且没有共享的可变对象：有环时会栈溢出，共享对象反序列化后会变成多个副本。
+     * 开启断言（-ea）时会先检查对象图，测试中能提前发现问题。
+     * 写出的字节只能用 deserializeAcyclic 读取
+     *
+     * @param object 需要序列化的对象
+     * @return
+     */
+    public static byte[] serializeAcyclic(Object object) {
+        if(object==null){
+            return null;
+        }
+        assert checkTree(object);
+        Kryo kryo = acyclicKryoPool.obtain();
+        Output output = outputPool.obtain();
+        try {
+            kryo.writeClassAndObject(output, object);
+            return output.toBytes();
+        } finally {
+            freeOutput(output);
+            freeKryo(acyclicKryoPool, kryo);
+        }
+    }
+
+    /**
+     * 不记录引用的序列化，见 serializeAcyclic(Object)
+     *
+     * @param object 需要序列化的对象
+     * @return
+     */
+    public static <T> byte[] serializeAcyclic(Object object, Class<T> tClass) {
+        if(object==null){
+            return null;
+        }
+        assert checkTree(object);
+        Kryo kryo = acyclicKryoPool.obtain();
+        Output output = outputPool.obtain();
+        try {
+            kryo.writeObjectOrNull(output, object, tClass);
+            return output.toBytes();
+        } finally {
+            freeOutput(output);
+            freeKryo(acyclicKryoPool, kryo);
+        }
+    }
+
+    /**
+     * 读取 serializeAcyclic(Object) 写出的字节
+     *
+     * @param bytes 对象对应的字节数组
+     * @return
+     */
+    public static Object deserializeAcyclic(byte[] bytes) {
+        if(bytes==null){
+            return null;
+        }
+        Kryo kryo = acyclicKryoPool.obtain();
+        Input input = inputPool.obtain();
+        try {
+            input.setBuffer(bytes);
+            return kryo.readClassAndObject(input);
+        } finally {
+            input.setBuffer(ByteUtils.EMPTY_ARRAY);
+            inputPool.free(input);
+            freeKryo(acyclicKryoPool, kryo);
+        }
+    }
+
+    /**
+     * 读取 serializeAcyclic(Object, Class) 写出的字节
+     *
+     * @param bytes 对象对应的字节数组
+     * @return
+     */
+    public static <T> T deserializeAcyclic(byte[] bytes, Class<T> aClass) {
+        if(bytes==null){
+            return null;
+        }
+        Kryo kryo = acyclicKryoPool.obtain();
+        Input input = inputPool.obtain();
+        try {
+            input.setBuffer(bytes);
+            return kryo.readObjectOrNull(input, aClass);
+        } finally {
+            input.setBuffer(ByteUtils.EMPTY_ARRAY);
+            inputPool.free(input);
+            freeKryo(acyclicKryoPool, kryo);
+        }
+    }
+
+    /**
+     * 流式序列化：逐条写出记录，每条记录为 varint 长度 + 独立的 Kryo 字节（带类型），不需要先把所有对象放进集合
+     * 内存占用只有一个 64 KiB 的流缓冲区和单条记录的缓冲区；写完后 flush，不关闭流。
+     * 用 readAll(InputStream) 读取
+     *
+     * @param items 待写出的对象，可以是数据库游标、文件等懒加载的迭代器
+     * @param outputStream 输出流
+     * @return 写出的记录数
+     */
+    public static long writeAll(Iterator<?> items, OutputStream outputStream) {
+        return writeAll(items, null, outputStream);
+    }
+
+    /**
+     * 流式序列化，见 writeAll(Iterator, OutputStream)
+     *
+     * @param items 待写出的对象
+     * @param outputStream 输出流
+     * @return 写出的记录数
+     */
+    public static long writeAll(Stream<?> items, OutputStream outputStream) {
+        return writeAll(items.iterator(), null, outputStream);
+    }
+
+    /**
+     * 流式序列化，所有记录都是同一类型，不写类型信息，用 readAll(InputStream, Class) 读取
+     *
+     * @param items 待写出的对象，可以包含 null
+     * @param tClass 对象类型
+     * @param outputStream 输出流
+     * @return 写出的记录数
+     */
+    public static <T> long writeAll(Iterator<? extends T> items, Class<T> tClass, OutputStream outputStream) {
+        Kryo kryo = kryoPool.obtain();
+        Output record = outputPool.obtain();
+        Output output = new Output(outputStream, STREAM_BUFFER_SIZE);
+        long count = 0;
+        try {
+            while (items.hasNext()) {
+                Object item = items.next();
+                // 每条记录单独写，Kryo 在记录之间自动重置引用表，记录之间互不依赖
+                if (tClass == null) {
+                    kryo.writeClassAndObject(record, item);
+                } else {
+                    kryo.writeObjectOrNull(record, item, tClass);
+                }
+                output.writeVarInt(record.position(), true);
+                output.writeBytes(record.getBuffer(), 0, record.position());
+                record.reset();
+                count++;
+            }
+            output.flush();
+            return count;
+        } finally {
+            freeOutput(record);
+            freeKryo(kryoPool, kryo);
+        }
+    }
+
+    /**
+     * 流式序列化到通道（如 FileChannel），从通道当前位置开始写，不关闭通道
+     *
+     * @param items 待写出的对象
+     * @param channel 通道
+     * @return 写出的记录数
+     */
+    public static long writeAll(Iterator<?> items, WritableByteChannel channel) {
+        return writeAll(items, null, Channels.newOutputStream(channel));
+    }
+
+    /**
+     * 流式序列化到通道，所有记录都是同一类型，见 writeAll(Iterator, Class, OutputStream)
+     *
+     * @param items 待写出的对象
+     * @param tClass 对象类型
+     * @param channel 通道
+     * @return 写出的记录数
+     */
+    public static <T> long writeAll(Iterator<? extends T> items, Class<T> tClass, WritableByteChannel channel) {
+        return writeAll(items, tClass, Channels.newOutputStream(channel));
+    }
+
+    /**
+     * 流式反序列化，按需逐条读取 writeAll(Iterator, OutputStream) 写出的记录
+     * 返回的 Stream 只能使用一次且只能顺序处理；读完或关闭 Stream 时归还内部的 Kryo，不关闭输入流。
+     * 记录长度与内容不一致时抛出 KryoException
+     *
+     * @param inputStream 输入流
+     * @return
+     */
+    public static Stream<Object> readAll(InputStream inputStream) {
+        return readAll(inputStream, null);
+    }
+
+    /**
+     * 流式反序列化，读取 writeAll(Iterator, Class, OutputStream) 写出的同一类型的记录
+     *
+     * @param inputStream 输入流
+     * @param aClass 对象类型
+     * @return
+     */
+    public static <T> Stream<T> readAll(InputStream inputStream, Class<T> aClass) {
+        RecordSpliterator<T> spliterator = new RecordSpliterator<>(inputStream, aClass);
+        return StreamSupport.stream(spliterator, false).onClose(spliterator::release);
+    }
+
+    /**
+     * 流式反序列化，从通道当前位置开始读取，不关闭通道
+     *
+     * @param channel 通道
+     * @return
+     */
+    public static Stream<Object> readAll(ReadableByteChannel channel) {
+        return readAll(Channels.newInputStream(channel), null);
+    }
+
+    /**
+     * 流式反序列化文件，关闭返回的 Stream 时关闭文件，应在 try-with-resources 中使用
+     *
+     * @param file 文件
+     * @param aClass 对象类型，写出时未指定类型则传 null
+     * @return
+     */
+    public static <T> Stream<T> readAll(Path file, Class<T> aClass) {
+        FileChannel channel;
+        try {
+            channel = FileChannel.open(file, StandardOpenOption.READ);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return readAll(Channels.newInputStream(channel), aClass).onClose(() -> {
+            try {
+                channel.close();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+    }
+
+    /**
+     * 检查对象图是否为树：同一个可变对象出现两次（包括环）时抛出 KryoException
+     * 只在断言中调用，不写出任何数据
+     */
+    private static boolean checkTree(Object object) {
+        Kryo kryo = treeCheckKryoPool.obtain();
+        Output output = outputPool.obtain();
+        try {
+            kryo.writeClassAndObject(output, object);
+            return true;
+        } finally {
+            freeOutput(output);
+            freeKryo(treeCheckKryoPool, kryo);
+        }
+    }
+
+    /**
+     * 归还 Kryo，先清理引用表等状态，序列化中途出错时也能安全复用
+     */
+    private static void freeKryo(Pool<Kryo> pool, Kryo kryo) {
+        if (((VersionedKryo) kryo).registrationVersion != registrationVersion) {
+            return;
+        }
+        kryo.reset();
+        pool.free(kryo);
+    }
+
+    /**
+     * 归还 Output，缓冲区被撑大时换回初始大小
+     */
+    private static void freeOutput(Output output) {
+        if (output.getBuffer().length > MAX_POOLED_BUFFER_SIZE) {
+            output.setBuffer(new byte[INITIAL_BUFFER_SIZE], -1);
+        }
+        outputPool.free(output);
+    }
+
+    /**
+     * 逐条读取长度分隔的记录，Kryo 在第一次读取时取出，读到末尾或 Stream 关闭时归还
+     */
+    private static final class RecordSpliterator<T> extends Spliterators.AbstractSpliterator<T> {
+        private final Input input;
+        private final Class<T> aClass;
+        private Kryo kryo;
+        private boolean finished;
+
+        RecordSpliterator(InputStream inputStream, Class<T> aClass) {
+            super(Long.MAX_VALUE, Spliterator.ORDERED);
+            this.input = new Input(inputStream, STREAM_BUFFER_SIZE);
+            this.aClass = aClass;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public boolean tryAdvance(Consumer<? super T> action) {
+            if (finished) {
+                return false;
+            }
+            if (input.end()) {
+                release();
+                return false;
+            }
+            if (kryo == null) {
+                kryo = kryoPool.obtain();
+            }
+            T item;
+            try {
+                int length = input.readVarInt(true);
+                long start = input.total();
+                item = aClass == null ? (T) kryo.readClassAndObject(input) : kryo.readObjectOrNull(input, aClass);
+                if (input.total() - start != length) {
+                    throw new KryoException("record length mismatch, expected " + length + " bytes, read " + (input.total() - start));
+                }
+            } catch (RuntimeException e) {
+                release();
+                throw e;
+            }
+            action.accept(item);
+            return true;
+        }
+
+        void release() {
+            finished = true;
+            if (kryo != null) {
+                freeKryo(kryoPool, kryo);
+                kryo = null;
+            }
+        }
+    }
+
+    /**
+     * 记录创建时的注册版本，归还时与当前版本比较
+     */
+    private static final class VersionedKryo extends Kryo {
+        private final Object registrationVersion;
+
+        VersionedKryo(ReferenceResolver referenceResolver, Object registrationVersion) {
+            super(referenceResolver);
+            this.registrationVersion = registrationVersion;
+        }
+    }
+
+    /**
+     * 默认 profile 的引用解析：声明为无环的类型不记录引用，其余类型与 Kryo 默认行为一致
+     */
+    private static final class AcyclicAwareReferenceResolver extends MapReferenceResolver {
+        /**
+         * Kryo 的 ReferenceResolver 以原始类型 Class 声明该方法，写成 Class<?> 无法覆盖，只能在此处抑制
+         */
+        @Override
+        @SuppressWarnings("rawtypes")
+        public boolean useReferences(Class type) {
+            return super.useReferences(type) && !acyclicTypes.contains(type);
+        }
     }
 
+    /**
+     * 检查对象图是否为树：可变对象第二次出现时报错；字符串、枚举等不可变对象共享不影响结果，放行
+     * 有环时在回到祖先对象时报错，不会栈溢出
+     */
+    private static final class TreeCheckingReferenceResolver extends MapReferenceResolver {
+        @Override
+        public int getWrittenId(Object object) {
+            int id = super.getWrittenId(object);
+            // String 以编号 10 重新注册时没有默认序列化器，沿用的是 FieldSerializer，不会标记为不可变，这里单独放行
+            if (id != -1 && !(object instanceof String) && !kryo.getRegistration(object.getClass()).getSerializer().isImmutable()) {
+                throw new KryoException("object graph is not a tree, " + object.getClass().getName() + " appears more than once");
+            }
+            return id;
+        }
+    }
+
+    private static final class CustomRegistration {
+        private final Class<?> type;
+        private final Serializer<?> serializer;
+        private final int id;
+
+        CustomRegistration(Class<?> type, Serializer<?> serializer, int id) {
+            this.type = type;
+            this.serializer = serializer;
+            this.id = id;
+        }
+    }
 }
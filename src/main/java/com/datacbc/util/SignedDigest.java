@@ -0,0 +1,42 @@
+/*
+ * chenhx
+ * Copyright (C) 2013-2022 All Rights Reserved.
+ */
+package com.datacbc.util;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * @author chenhx
+ * @version 0.0.1
+ * @className SignedDigest.java
+ * @date 2026-10-18 09:46
+ * @description 一次 hash 得到的数据ID及对该ID的签名
+ */
+@Getter
+@AllArgsConstructor
+public class SignedDigest implements Canonical {
+    /**
+     * 数据ID，双重 SHA-256
+     */
+    private final byte[] id;
+    /**
+     * 对数据ID的签名
+     */
+    private final byte[] sign;
+
+    /**
+     * 数据ID hex 字符串
+     * @return
+     */
+    public String getIdHex() {
+        return ByteUtils.bytesToHexString(id);
+    }
+
+    @Override
+    public void writeCanonical(CanonicalWriter writer) {
+        writer.writeHash(id);
+        writer.writeVarBytes(sign);
+    }
+}
@@ -0,0 +1,50 @@
+/*
+ * chenhx
+ * Copyright (C) 2013-2022 All Rights Reserved.
+ */
+package com.datacbc.util;
+
+import com.esotericsoftware.kryo.Kryo;
+import com.esotericsoftware.kryo.KryoException;
+import com.esotericsoftware.kryo.Serializer;
+import com.esotericsoftware.kryo.io.Input;
+import com.esotericsoftware.kryo.io.Output;
+
+/**
+ * @author chenhx
+ * @version 0.0.1
+ * @className SignedDigestSerializer.java
+ * @date 2026-10-18 10:18
+ * @description 数据ID及签名的 Kryo 序列化器
+ * 数据ID固定 32 字节，不写长度；签名为 DER 编码，长度不固定，先写 varint 长度再写内容
+ */
+public class SignedDigestSerializer extends Serializer<SignedDigest> {
+    /**
+     * 数据ID长度，双重 SHA-256
+     */
+    private static final int ID_LENGTH = 32;
+
+    @Override
+    public void write(Kryo kryo, Output output, SignedDigest digest) {
+        byte[] id = digest.getId();
+        if (id == null || id.length != ID_LENGTH) {
+            throw new KryoException("SignedDigest id must be " + ID_LENGTH + " bytes");
+        }
+        byte[] sign = digest.getSign();
+        output.writeBytes(id);
+        output.writeVarInt(sign.length, true);
+        output.writeBytes(sign);
+    }
+
+    @Override
+    public SignedDigest read(Kryo kryo, Input input, Class<? extends SignedDigest> type) {
+        byte[] id = input.readBytes(ID_LENGTH);
+        byte[] sign = input.readBytes(input.readVarInt(true));
+        return new SignedDigest(id, sign);
+    }
+
+    @Override
+    public SignedDigest copy(Kryo kryo, SignedDigest original) {
+        return new SignedDigest(original.getId().clone(), original.getSign().clone());
+    }
+}
@@ -0,0 +1,32 @@
+/*
+ * chenhx
+ * Copyright (C) 2013-2022 All Rights Reserved.
+ */
+package com.datacbc.util;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * @author chenhx
+ * @version 0.0.1
+ * @className VerifyRequest.java
+ * @date 2026-10-18 09:43
+ * @description 批量验签请求
+ */
+@Getter
+@AllArgsConstructor
+public class VerifyRequest {
+    /**
+     * 待校验数据
+     */
+    private final byte[] data;
+    /**
+     * 公钥
+     */
+    private final byte[] publicKey;
+    /**
+     * 数字签名
+     */
+    private final byte[] sign;
+}
@@ -0,0 +1,246 @@
+/*
+ * chenhx
+ * Copyright (C) 2013-2022 All Rights Reserved.
+ */
+package com.datacbc.wallet;
+
+import com.datacbc.exception.ServiceException;
+import com.datacbc.util.Base58Check;
+import com.datacbc.util.ByteUtils;
+import com.datacbc.util.Canonical;
+import com.datacbc.util.CanonicalWriter;
+
+import java.io.Serializable;
+
+/**
+ * @author chenhx
+ * @version 0.0.1
+ * @className Address.java
+ * @date 2026-10-18 10:00
+ * @description 钱包地址值对象，不可变
+ * 只保存 20 字节公钥hash，拆成两个 long 和一个 int 字段存放，不持有数组和字符串；
+ * hashCode 在构造时算好，适合作为大规模 Map 的 key。
+ * Base58 地址字符串在 toString() 时按需生成，不做缓存
+ */
+public final class Address implements Comparable<Address>, Serializable, Canonical {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * 公钥hash 第 0-7 字节，大端
+     */
+    private final long hash0;
+    /**
+     * 公钥hash 第 8-15 字节，大端
+     */
+    private final long hash1;
+    /**
+     * 公钥hash 第 16-19 字节，大端
+     */
+    private final int hash2;
+    private final int hashCode;
+
+    private Address(long hash0, long hash1, int hash2) {
+        this.hash0 = hash0;
+        this.hash1 = hash1;
+        this.hash2 = hash2;
+        this.hashCode = hashCode(hash0, hash1, hash2);
+    }
+
+    /**
+     * 通过钱包地址字符串创建
+     * @param address 钱包地址
+     * @return
+     */
+    public static Address fromString(CharSequence address) {
+        byte[] versionedPayload = new byte[1 + AddressDeriver.PUBKEY_HASH_LENGTH];
+        if (Base58Check.tryDecode(address, versionedPayload) != versionedPayload.length
+                || versionedPayload[0] != AddressDeriver.VERSION) {
+            throw new ServiceException("错误的钱包地址");
+        }
+        return fromPubkeyHash(versionedPayload, 1);
+    }
+
+    /**
+     * 通过公钥hash创建
+     * @param pubkeyHash 20 字节公钥hash
+     * @return
+     */
+    public static Address fromPubkeyHash(byte[] pubkeyHash) {
+        if (pubkeyHash == null || pubkeyHash.length != AddressDeriver.PUBKEY_HASH_LENGTH) {
+            throw new ServiceException("错误的公钥hash");
+        }
+        return fromPubkeyHash(pubkeyHash, 0);
+    }
+
+    /**
+     * 通过公钥hash创建
+     * @param pubkeyHash 公钥hash所在数组
+     * @param offset 公钥hash起始位置，从该位置读取 20 字节
+     * @return
+     */
+    public static Address fromPubkeyHash(byte[] pubkeyHash, int offset) {
+        return new Address(readLong(pubkeyHash, offset), readLong(pubkeyHash, offset + 8), readInt(pubkeyHash, offset + 16));
+    }
+
+    /**
+     * 通过公钥hash的16进制字符串创建，与 Wallet.getPubKeyHashByAddress 的结果互通
+     * @param pubkeyHashHex 公钥hash 16进制字符串
+     * @return
+     */
+    public static Address fromPubkeyHashHex(String pubkeyHashHex) {
+        if (pubkeyHashHex == null || pubkeyHashHex.length() != AddressDeriver.PUBKEY_HASH_LENGTH * 2) {
+            throw new ServiceException("错误的公钥hash");
+        }
+        return fromPubkeyHash(ByteUtils.hexStringToByte(pubkeyHashHex), 0);
+    }
+
+    /**
+     * 通过公钥创建
+     * @param publicKey 公钥
+     * @return
+     */
+    public static Address ofPublicKey(byte[] publicKey) {
+        return fromPubkeyHash(Wallet.getPubkeyHashByPubkey(publicKey), 0);
+    }
+
+    /**
+     * 公钥hash
+     * @return 新的 20 字节数组
+     */
+    public byte[] toPubkeyHash() {
+        byte[] pubkeyHash = new byte[AddressDeriver.PUBKEY_HASH_LENGTH];
+        writePubkeyHash(pubkeyHash, 0);
+        return pubkeyHash;
+    }
+
+    /**
+     * 将公钥hash写入调用方提供的数组
+     * @param out 输出数组
+     * @param offset 输出起始位置，写入 20 字节
+     */
+    public void writePubkeyHash(byte[] out, int offset) {
+        writeLong(hash0, out, offset);
+        writeLong(hash1, out, offset + 8);
+        writeInt(hash2, out, offset + 16);
+    }
+
+    /**
+     * 公钥hash 16进制字符串，与 Wallet.getPubKeyHashByAddress 的结果一致
+     * @return
+     */
+    public String toPubkeyHashHex() {
+        return ByteUtils.bytesToHexString(toPubkeyHash());
+    }
+
+    /**
+     * 将 Base58 地址写入字符数组
+     * @param out 输出字符数组，至少需要 AddressDeriver.MAX_ADDRESS_LENGTH 个字符的空间
+     * @param offset 输出起始位置
+     * @return 写入的字符数
+     */
+    public int appendTo(char[] out, int offset) {
+        return AddressDeriver.current().addressOfPubkeyHash(toPubkeyHash(), 0, out, offset);
+    }
+
+    /**
+     * Base58 钱包地址，与 Wallet.getAddressByPubkey 的结果一致
+     * @return
+     */
+    @Override
+    public String toString() {
+        return AddressDeriver.current().addressOfPubkeyHash(toPubkeyHash());
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof Address)) {
+            return false;
+        }
+        Address that = (Address) o;
+        return hashCode == that.hashCode && hash0 == that.hash0 && hash1 == that.hash1 && hash2 == that.hash2;
+    }
+
+    @Override
+    public int hashCode() {
+        return hashCode;
+    }
+
+    /**
+     * 按公钥hash的无符号字节序比较
+     */
+    @Override
+    public int compareTo(Address o) {
+        int c = Long.compareUnsigned(hash0, o.hash0);
+        if (c != 0) {
+            return c;
+        }
+        c = Long.compareUnsigned(hash1, o.hash1);
+        if (c != 0) {
+            return c;
+        }
+        return Integer.compareUnsigned(hash2, o.hash2);
+    }
+
+    /**
+     * 规范编码：20 字节公钥hash
+     */
+    @Override
+    public void writeCanonical(CanonicalWriter writer) {
+        writer.writeLong(hash0);
+        writer.writeLong(hash1);
+        writer.writeInt(hash2);
+    }
+
+    /**
+     * 由三段公钥hash直接创建，供序列化器使用
+     */
+    static Address of(long hash0, long hash1, int hash2) {
+        return new Address(hash0, hash1, hash2);
+    }
+
+    long hash0() {
+        return hash0;
+    }
+
+    long hash1() {
+        return hash1;
+    }
+
+    int hash2() {
+        return hash2;
+    }
+
+    private static int hashCode(long hash0, long hash1, int hash2) {
+        // 公钥hash本身已均匀分布，混合各字段即可
+        long h = hash0 * 31 + hash1;
+        h = h * 31 + hash2;
+        return (int) (h ^ (h >>> 32));
+    }
+
+    private static long readLong(byte[] src, int offset) {
+        return ((long) readInt(src, offset) << 32) | (readInt(src, offset + 4) & 0xFFFFFFFFL);
+    }
+
+    private static int readInt(byte[] src, int offset) {
+        return (src[offset] & 0xFF) << 24
+                | (src[offset + 1] & 0xFF) << 16
+                | (src[offset + 2] & 0xFF) << 8
+                | (src[offset + 3] & 0xFF);
+    }
+
+    private static void writeLong(long value, byte[] out, int offset) {
+        writeInt((int) (value >>> 32), out, offset);
+        writeInt((int) value, out, offset + 4);
+    }
+
+    private static void writeInt(int value, byte[] out, int offset) {
+        out[offset] = (byte) (value >>> 24);
+        out[offset + 1] = (byte) (value >>> 16);
+        out[offset + 2] = (byte) (value >>> 8);
+        out[offset + 3] = (byte) value;
+    }
+}
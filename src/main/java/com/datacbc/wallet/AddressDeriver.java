@@ -0,0 +1,163 @@
+/*
+ * chenhx
+ * Copyright (C) 2013-2022 All Rights Reserved.
+ */
+package com.datacbc.wallet;
+
+import com.datacbc.util.Base58Check;
+import org.bouncycastle.crypto.digests.RIPEMD160Digest;
+import org.bouncycastle.crypto.digests.SHA256Digest;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * @author chenhx
+ * @version 0.0.1
+ * @className AddressDeriver.java
+ * @date 2026-10-18 09:55
+ * @description 地址推导：SHA-256 → RIPEMD-160 → 版本号 + 校验码 → Base58
+ * 摘要对象与中间缓冲区全部复用，结果写入调用方提供的缓冲区。
+ * 非线程安全，每个线程通过 current() 获取自己的实例
+ */
+public final class AddressDeriver {
+    /**
+     * 公钥hash长度
+     */
+    public static final int PUBKEY_HASH_LENGTH = 20;
+    /**
+     * 地址版本号
+     */
+    public static final byte VERSION = 0;
+    /**
+     * 校验码长度
+     */
+    public static final int CHECKSUM_LENGTH = 4;
+    /**
+     * 二进制地址长度：版本号 + 公钥hash + 校验码
+     */
+    public static final int BINARY_ADDRESS_LENGTH = 1 + PUBKEY_HASH_LENGTH + CHECKSUM_LENGTH;
+    /**
+     * 地址字符串的最大长度
+     */
+    public static final int MAX_ADDRESS_LENGTH = Base58Check.maxEncodedLength(BINARY_ADDRESS_LENGTH);
+
+    private static final ThreadLocal<AddressDeriver> deriverThreadLocal = ThreadLocal.withInitial(AddressDeriver::new);
+
+    private final SHA256Digest sha256 = new SHA256Digest();
+    private final RIPEMD160Digest ripemd160 = new RIPEMD160Digest();
+    private final byte[] hashBuffer = new byte[32];
+    private final byte[] binaryAddress = new byte[BINARY_ADDRESS_LENGTH];
+    private final char[] addressChars = new char[MAX_ADDRESS_LENGTH];
+
+    private AddressDeriver() {
+    }
+
+    /**
+     * 当前线程的实例
+     * @return
+     */
+    public static AddressDeriver current() {
+        return deriverThreadLocal.get();
+    }
+
+    /**
+     * 计算公钥hash：RIPEMD160(SHA256(pubkey))
+     * @param publicKey 公钥
+     * @param out 输出缓冲区，写入 20 字节
+     * @param outOffset 输出起始位置
+     */
+    public void pubkeyHash(byte[] publicKey, byte[] out, int outOffset) {
+        sha256.update(publicKey, 0, publicKey.length);
+        sha256.doFinal(hashBuffer, 0);
+        ripemd160.update(hashBuffer, 0, 32);
+        ripemd160.doFinal(out, outOffset);
+    }
+
+    /**
+     * 计算二进制地址：版本号 + 公钥hash + 校验码
+     * @param pubkeyHash 20 字节公钥hash
+     * @param offset 公钥hash起始位置
+     * @param out 输出缓冲区，写入 25 字节
+     * @param outOffset 输出起始位置
+     */
+    public void binaryAddress(byte[] pubkeyHash, int offset, byte[] out, int outOffset) {
+        out[outOffset] = VERSION;
+        System.arraycopy(pubkeyHash, offset, out, outOffset + 1, PUBKEY_HASH_LENGTH);
+        checksum(out, outOffset, 1 + PUBKEY_HASH_LENGTH, out, outOffset + 1 + PUBKEY_HASH_LENGTH);
+    }
+
+    /**
+     * 计算校验码：双重 SHA-256 的前 4 字节
+     * @param data 数据
+     * @param offset 数据起始位置
+     * @param length 数据长度
+     * @param out 输出缓冲区，写入 4 字节
+     * @param outOffset 输出起始位置
+     */
+    public void checksum(byte[] data, int offset, int length, byte[] out, int outOffset) {
+        sha256.update(data, offset, length);
+        sha256.doFinal(hashBuffer, 0);
+        sha256.update(hashBuffer, 0, 32);
+        sha256.doFinal(hashBuffer, 0);
+        System.arraycopy(hashBuffer, 0, out, outOffset, CHECKSUM_LENGTH);
+    }
+
+    /**
+     * 由公钥hash计算地址，写入字符数组
+     * @param pubkeyHash 20 字节公钥hash
+     * @param offset 公钥hash起始位置
+     * @param out 输出字符数组，至少需要 MAX_ADDRESS_LENGTH 个字符的空间
+     * @param outOffset 输出起始位置
+     * @return 写入的字符数
+     */
+    public int addressOfPubkeyHash(byte[] pubkeyHash, int offset, char[] out, int outOffset) {
+        binaryAddress(pubkeyHash, offset, binaryAddress, 0);
+        return Base58Check.rawBytesToBase58(binaryAddress, 0, BINARY_ADDRESS_LENGTH, out, outOffset);
+    }
+
+    /**
+     * 由公钥计算地址，写入字符数组
+     * @param publicKey 公钥
+     * @param out 输出字符数组，至少需要 MAX_ADDRESS_LENGTH 个字符的空间
+     * @param outOffset 输出起始位置
+     * @return 写入的字符数
+     */
+    public int deriveAddress(byte[] publicKey, char[] out, int outOffset) {
+        pubkeyHash(publicKey, binaryAddress, 1);
+        binaryAddress[0] = VERSION;
+        checksum(binaryAddress, 0, 1 + PUBKEY_HASH_LENGTH, binaryAddress, 1 + PUBKEY_HASH_LENGTH);
+        return Base58Check.rawBytesToBase58(binaryAddress, 0, BINARY_ADDRESS_LENGTH, out, outOffset);
+    }
+
+    /**
+     * 由公钥计算地址
+     * @param publicKey 公钥
+     * @return
+     */
+    public String deriveAddress(byte[] publicKey) {
+        int length = deriveAddress(publicKey, addressChars, 0);
+        return new String(addressChars, 0, length);
+    }
+
+    /**
+     * 由公钥hash计算地址
+     * @param pubkeyHash 20 字节公钥hash
+     * @return
+     */
+    public String addressOfPubkeyHash(byte[] pubkeyHash) {
+        int length = addressOfPubkeyHash(pubkeyHash, 0, addressChars, 0);
+        return new String(addressChars, 0, length);
+    }
+
+    /**
+     * 批量由公钥计算地址，按 CPU 核数并行，每个线程复用自己的实例
+     * @param publicKeys 公钥
+     * @return 与 publicKeys 顺序一致的地址
+     */
+    public static List<String> deriveAddresses(List<byte[]> publicKeys) {
+        return publicKeys.parallelStream()
+                .map(publicKey -> current().deriveAddress(publicKey))
+                .collect(Collectors.toList());
+    }
+}
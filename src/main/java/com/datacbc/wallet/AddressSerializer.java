@@ -0,0 +1,41 @@
+/*
+ * chenhx
+ * Copyright (C) 2013-2022 All Rights Reserved.
+ */
+package com.datacbc.wallet;
+
+import com.esotericsoftware.kryo.Kryo;
+import com.esotericsoftware.kryo.Serializer;
+import com.esotericsoftware.kryo.io.Input;
+import com.esotericsoftware.kryo.io.Output;
+
+/**
+ * @author chenhx
+ * @version 0.0.1
+ * @className AddressSerializer.java
+ * @date 2026-10-18 10:18
+ * @description 钱包地址的 Kryo 序列化器
+ * 固定写 20 字节公钥hash（两个 long 加一个 int），不写类名、字段名和长度，读取时不经过 Base58
+ */
+public class AddressSerializer extends Serializer<Address> {
+
+    public AddressSerializer() {
+        // 地址不可变，copy 直接返回原对象
+        setImmutable(true);
+    }
+
+    @Override
+    public void write(Kryo kryo, Output output, Address address) {
+        output.writeLong(address.hash0());
+        output.writeLong(address.hash1());
+        output.writeInt(address.hash2());
+    }
+
+    @Override
+    public Address read(Kryo kryo, Input input, Class<? extends Address> type) {
+        long hash0 = input.readLong();
+        long hash1 = input.readLong();
+        int hash2 = input.readInt();
+        return Address.of(hash0, hash1, hash2);
+    }
+}
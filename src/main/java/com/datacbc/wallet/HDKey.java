@@ -0,0 +1,397 @@
+/*
+ * chenhx
+ * Copyright (C) 2013-2022 All Rights Reserved.
+ */
+package com.datacbc.wallet;
+
+import com.datacbc.exception.ServiceException;
+import com.datacbc.util.ECDSACodec;
+import com.datacbc.util.Secp256k1;
+import com.datacbc.util.SecureRandomUtils;
+import org.bouncycastle.crypto.digests.SHA512Digest;
+import org.bouncycastle.crypto.macs.HMac;
+import org.bouncycastle.crypto.params.KeyParameter;
+import org.bouncycastle.math.ec.ECPoint;
+import org.bouncycastle.math.ec.FixedPointCombMultiplier;
+import org.bouncycastle.util.BigIntegers;
+
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.IntStream;
+
+/**
+ * @author chenhx
+ * @version 0.0.1
+ * @className HDKey.java
+ * @date 2026-10-18 10:05
+ * @description 分层确定性密钥（BIP32 规则），不可变
+ * 主密钥由种子经 HMAC-SHA512 得到，子密钥由父密钥 + 链码 + 序号推导：
+ * 普通子密钥可以只用父公钥推导（观察钱包只需要公钥和链码），强化子密钥（序号 >= 2^31）必须有父私钥。
+ * 压缩公钥、指纹在构造时算好；批量推导时每个线程只初始化一次以链码为密钥的 HMAC，
+ * 子公钥 = IL·G + 父公钥，只需一次固定基点乘法，比独立生成密钥对快得多。
+ * 备份只需要种子，或者主私钥 + 链码
+ */
+public final class HDKey {
+    /**
+     * 强化子密钥序号标志位
+     */
+    public static final int HARDENED_BIT = 0x80000000;
+    /**
+     * 链码长度
+     */
+    public static final int CHAIN_CODE_LENGTH = 32;
+    /**
+     * 与 BIP32 一致的主密钥 HMAC 密钥，同一种子推导出的密钥与其他 BIP32 实现相同
+     */
+    private static final byte[] MASTER_KEY_SECRET = "Bitcoin seed".getBytes(StandardCharsets.US_ASCII);
+    /**
+     * 批量推导时每个任务处理的子密钥个数
+     */
+    private static final int DERIVE_BATCH_SIZE = 64;
+    private static final FixedPointCombMultiplier BASE_MULTIPLIER = new FixedPointCombMultiplier();
+
+    /**
+     * 私钥标量，只有公钥时为 null
+     */
+    private final BigInteger privateKey;
+    /**
+     * 公钥点，已规范化
+     */
+    private final ECPoint publicKey;
+    private final byte[] chainCode;
+    /**
+     * 33 字节压缩公钥，推导普通子密钥时使用
+     */
+    private final byte[] compressedPublicKey;
+    private final int depth;
+    private final int childNumber;
+    private final int parentFingerprint;
+    private final int fingerprint;
+
+    private HDKey(BigInteger privateKey, ECPoint publicKey, byte[] chainCode, int depth, int childNumber, int parentFingerprint) {
+        this.privateKey = privateKey;
+        this.publicKey = publicKey;
+        this.chainCode = chainCode;
+        this.compressedPublicKey = publicKey.getEncoded(true);
+        this.depth = depth;
+        this.childNumber = childNumber;
+        this.parentFingerprint = parentFingerprint;
+        byte[] hash = new byte[AddressDeriver.PUBKEY_HASH_LENGTH];
+        AddressDeriver.current().pubkeyHash(compressedPublicKey, hash, 0);
+        this.fingerprint = readInt(hash, 0);
+    }
+
+    /**
+     * 由种子生成主密钥
+     * @param seed 种子，16 到 64 字节
+     * @return
+     */
+    public static HDKey fromSeed(byte[] seed) {
+        if (seed == null || seed.length < 16 || seed.length > 64) {
+            throw new IllegalArgumentException("seed must be 16 to 64 bytes");
+        }
+        HMac mac = newMac(MASTER_KEY_SECRET);
+        mac.update(seed, 0, seed.length);
+        byte[] i = new byte[64];
+        mac.doFinal(i, 0);
+        BigInteger d = BigIntegers.fromUnsignedByteArray(i, 0, 32);
+        if (d.signum() == 0 || d.compareTo(Secp256k1.N) >= 0) {
+            throw new IllegalArgumentException("Invalid seed, derived master key out of range");
+        }
+        return new HDKey(d, BASE_MULTIPLIER.multiply(Secp256k1.G, d).normalize(),
+                Arrays.copyOfRange(i, 32, 64), 0, 0, 0);
+    }
+
+    /**
+     * 生成 32 字节随机种子
+     * @return
+     */
+    public static byte[] newSeed() {
+        return SecureRandomUtils.randomBytes(32);
+    }
+
+    /**
+     * 由私钥和链码恢复密钥，作为推导起点
+     * @param rawPrivateKey 32 字节原始私钥
+     * @param chainCode 32 字节链码
+     * @return
+     */
+    public static HDKey fromPrivateKey(byte[] rawPrivateKey, byte[] chainCode) {
+        checkChainCode(chainCode);
+        BigInteger d;
+        try {
+            d = ECDSACodec.decodeRawPrivateKey(rawPrivateKey);
+        } catch (GeneralSecurityException e) {
+            throw new ServiceException("错误的私钥", e);
+        }
+        return new HDKey(d, BASE_MULTIPLIER.multiply(Secp256k1.G, d).normalize(), chainCode.clone(), 0, 0, 0);
+    }
+
+    /**
+     * 由公钥和链码恢复只有公钥的密钥，用于观察钱包推导地址
+     * @param compressedPublicKey 33 字节压缩公钥
+     * @param chainCode 32 字节链码
+     * @return
+     */
+    public static HDKey fromPublicKey(byte[] compressedPublicKey, byte[] chainCode) {
+        checkChainCode(chainCode);
+        ECPoint q;
+        try {
+            q = ECDSACodec.decodeCompressedPublicKey(compressedPublicKey);
+        } catch (GeneralSecurityException e) {
+            throw new ServiceException("错误的公钥", e);
+        }
+        return new HDKey(null, q.normalize(), chainCode.clone(), 0, 0, 0);
+    }
+
+    /**
+     * 推导子密钥
+     * @param index 子密钥序号，带 HARDENED_BIT 时为强化子密钥
+     * @return
+     */
+    public HDKey deriveChild(int index) {
+        return deriveChild(newMac(chainCode), index, new byte[37], new byte[64]);
+    }
+
+    /**
+     * 推导强化子密钥
+     * @param index 子密钥序号，0 到 2^31 - 1
+     * @return
+     */
+    public HDKey deriveHardened(int index) {
+        if (index < 0) {
+            throw new IllegalArgumentException("index must be less than 2^31");
+        }
+        return deriveChild(index | HARDENED_BIT);
+    }
+
+    /**
+     * 按路径推导，例如 m/44'/0'/0'/0/5，' 或 h 表示强化子密钥
+     * 路径相对当前密钥，m 表示当前密钥本身
+     * @param path 路径
+     * @return
+     */
+    public HDKey derivePath(String path) {
+        if (path == null || path.isEmpty()) {
+            throw new IllegalArgumentException("path is empty");
+        }
+        String[] parts = path.split("/");
+        HDKey key = this;
+        for (int i = 0; i < parts.length; i++) {
+            String part = parts[i].trim();
+            if (i == 0 && "m".equals(part)) {
+                continue;
+            }
+            boolean hardened = part.endsWith("'") || part.endsWith("h") || part.endsWith("H");
+            String number = hardened ? part.substring(0, part.length() - 1) : part;
+            int index;
+            try {
+                index = Integer.parseInt(number);
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Invalid path: " + path, e);
+            }
+            if (index < 0) {
+                throw new IllegalArgumentException("Invalid path: " + path);
+            }
+            key = key.deriveChild(hardened ? index | HARDENED_BIT : index);
+        }
+        return key;
+    }
+
+    /**
+     * 并行推导连续序号的子密钥
+     * 每个任务只初始化一次 HMAC，复用父密钥的压缩公钥和公钥点
+     * @param from 起始序号，带 HARDENED_BIT 时推导强化子密钥
+     * @param count 个数，所有序号必须同为普通或同为强化
+     * @return 与序号顺序一致的子密钥
+     */
+    public List<HDKey> deriveChildren(int from, int count) {
+        if (count < 0) {
+            throw new IllegalArgumentException("count < 0");
+        }
+        long last = (from & 0xFFFFFFFFL) + count - 1;
+        // 按无符号比较强化位，避免 int 与 long 运算时符号扩展
+        if (count > 0 && (last > 0xFFFFFFFFL || (from & 0x80000000L) != (last & 0x80000000L))) {
+            throw new IllegalArgumentException("range crosses the hardened boundary");
+        }
+        HDKey[] children = new HDKey[count];
+        int batches = (count + DERIVE_BATCH_SIZE - 1) / DERIVE_BATCH_SIZE;
+        IntStream.range(0, batches).parallel().forEach(batch -> {
+            HMac mac = newMac(chainCode);
+            byte[] data = new byte[37];
+            byte[] i = new byte[64];
+            int end = Math.min(count, (batch + 1) * DERIVE_BATCH_SIZE);
+            for (int k = batch * DERIVE_BATCH_SIZE; k < end; k++) {
+                children[k] = deriveChild(mac, from + k, data, i);
+            }
+        });
+        return new ArrayList<>(Arrays.asList(children));
+    }
+
+    /**
+     * 并行推导连续序号的子钱包
+     * @param from 起始序号
+     * @param count 个数
+     * @return 与序号顺序一致的钱包
+     */
+    public List<Wallet> deriveWallets(int from, int count) {
+        List<HDKey> children = deriveChildren(from, count);
+        List<Wallet> wallets = new ArrayList<>(children.size());
+        for (HDKey child : children) {
+            wallets.add(child.toWallet());
+        }
+        return wallets;
+    }
+
+    /**
+     * 去掉私钥，只保留公钥和链码，可交给观察钱包推导地址
+     * @return
+     */
+    public HDKey neuter() {
+        if (privateKey == null) {
+            return this;
+        }
+        return new HDKey(null, publicKey, chainCode, depth, childNumber, parentFingerprint);
+    }
+
+    /**
+     * 转成钱包，私钥、公钥编码与 Wallet.generate() 生成的一致
+     * @return
+     */
+    public Wallet toWallet() {
+        if (privateKey == null) {
+            throw new IllegalStateException("public-only key cannot create a wallet");
+        }
+        return new Wallet(ECDSACodec.encodePrivateKey(privateKey, publicKey), Secp256k1.encodePublicKey(publicKey));
+    }
+
+    /**
+     * X509 编码的公钥，与 Wallet.publicKey 格式一致
+     * @return
+     */
+    public byte[] getPublicKey() {
+        return Secp256k1.encodePublicKey(publicKey);
+    }
+
+    /**
+     * 33 字节压缩公钥
+     * @return
+     */
+    public byte[] getCompressedPublicKey() {
+        return compressedPublicKey.clone();
+    }
+
+    /**
+     * 32 字节原始私钥，只有公钥时返回 null
+     * @return
+     */
+    public byte[] getRawPrivateKey() {
+        return privateKey == null ? null : BigIntegers.asUnsignedByteArray(ECDSACodec.RAW_PRIVATE_KEY_LENGTH, privateKey);
+    }
+
+    /**
+     * 钱包地址
+     * @return
+     */
+    public String getAddress() {
+        return Wallet.getAddressByPubkey(getPublicKey());
+    }
+
+    public byte[] getChainCode() {
+        return chainCode.clone();
+    }
+
+    public boolean hasPrivateKey() {
+        return privateKey != null;
+    }
+
+    public int getDepth() {
+        return depth;
+    }
+
+    public int getChildNumber() {
+        return childNumber;
+    }
+
+    public boolean isHardened() {
+        return (childNumber & HARDENED_BIT) != 0;
+    }
+
+    /**
+     * 指纹：RIPEMD160(SHA256(压缩公钥)) 的前 4 字节
+     * @return
+     */
+    public int getFingerprint() {
+        return fingerprint;
+    }
+
+    public int getParentFingerprint() {
+        return parentFingerprint;
+    }
+
+    /**
+     * @param mac 已用本密钥链码初始化的 HMAC
+     * @param data 37 字节缓冲区
+     * @param i 64 字节缓冲区
+     */
+    private HDKey deriveChild(HMac mac, int index, byte[] data, byte[] i) {
+        if ((index & HARDENED_BIT) != 0) {
+            if (privateKey == null) {
+                throw new IllegalStateException("public-only key cannot derive hardened child");
+            }
+            data[0] = 0;
+            BigIntegers.asUnsignedByteArray(privateKey, data, 1, 32);
+        } else {
+            System.arraycopy(compressedPublicKey, 0, data, 0, 33);
+        }
+        data[33] = (byte) (index >>> 24);
+        data[34] = (byte) (index >>> 16);
+        data[35] = (byte) (index >>> 8);
+        data[36] = (byte) index;
+        mac.update(data, 0, data.length);
+        mac.doFinal(i, 0);
+
+        BigInteger il = BigIntegers.fromUnsignedByteArray(i, 0, 32);
+        if (il.compareTo(Secp256k1.N) >= 0) {
+            // 概率约 2^-127，BIP32 规定此时该序号无效
+            throw new IllegalStateException("Invalid child index " + Integer.toUnsignedString(index));
+        }
+        byte[] childChainCode = Arrays.copyOfRange(i, 32, 64);
+        if (privateKey != null) {
+            BigInteger d = il.add(privateKey).mod(Secp256k1.N);
+            if (d.signum() == 0) {
+                throw new IllegalStateException("Invalid child index " + Integer.toUnsignedString(index));
+            }
+            return new HDKey(d, BASE_MULTIPLIER.multiply(Secp256k1.G, d).normalize(),
+                    childChainCode, depth + 1, index, fingerprint);
+        }
+        ECPoint q = BASE_MULTIPLIER.multiply(Secp256k1.G, il).add(publicKey).normalize();
+        if (q.isInfinity()) {
+            throw new IllegalStateException("Invalid child index " + Integer.toUnsignedString(index));
+        }
+        return new HDKey(null, q, childChainCode, depth + 1, index, fingerprint);
+    }
+
+    private static HMac newMac(byte[] key) {
+        HMac mac = new HMac(new SHA512Digest());
+        mac.init(new KeyParameter(key));
+        return mac;
+    }
+
+    private static void checkChainCode(byte[] chainCode) {
+        if (chainCode == null || chainCode.length != CHAIN_CODE_LENGTH) {
+            throw new IllegalArgumentException("chain code must be 32 bytes");
+        }
+    }
+
+    private static int readInt(byte[] src, int offset) {
+        return (src[offset] & 0xFF) << 24
+                | (src[offset + 1] & 0xFF) << 16
+                | (src[offset + 2] & 0xFF) << 8
+                | (src[offset + 3] & 0xFF);
+    }
+}
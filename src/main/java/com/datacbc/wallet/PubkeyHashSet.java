@@ -0,0 +1,554 @@
+/*
+ * chenhx
+ * Copyright (C) 2013-2022 All Rights Reserved.
+ */
+package com.datacbc.wallet;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.List;
+import java.util.RandomAccess;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * @author chenhx
+ * @version 0.0.1
+ * @className PubkeyHashSet.java
+ * @date 2026-10-18 10:02
+ * @description 20 字节公钥hash集合，用于扫描链上输出是否属于自有钱包
+ * 槽位放在堆外 direct ByteBuffer 中，线性探测开放寻址，负载因子不超过 0.5；
+ * 探测前先查一个分块布隆过滤器（每个 key 只落在一个 64 字节块内），不存在的 hash 大多在这里就被拒绝。
+ * 读操作使用 StampedLock 乐观读，写操作加写锁，扩容时整体替换槽位表
+ */
+public final class PubkeyHashSet {
+    /**
+     * 每个槽位的字节数：long + long + int
+     */
+    private static final int SLOT_BYTES = AddressDeriver.PUBKEY_HASH_LENGTH;
+    /**
+     * 槽位数上限，受 ByteBuffer 容量(int)限制
+     */
+    private static final int MAX_CAPACITY = 1 << 26;
+    /**
+     * 布隆过滤器：每个槽位 8 bit，每个块 512 bit(8 个 long)，每个 key 置 4 bit
+     */
+    private static final int BLOOM_BITS_PER_SLOT = 8;
+    private static final int BLOOM_BLOCK_LONGS = 8;
+    /**
+     * 并行扫描时每个任务处理的最小数量
+     */
+    private static final int SCAN_BATCH_THRESHOLD = 1024;
+
+    private final StampedLock lock = new StampedLock();
+    private volatile Table table;
+    private volatile int size;
+    /**
+     * 全 0 的 hash 与空槽位无法区分，单独记录
+     */
+    private volatile boolean containsZero;
+
+    /**
+     * @param expectedSize 预计元素个数
+     */
+    public PubkeyHashSet(int expectedSize) {
+        if (expectedSize < 0) {
+            throw new IllegalArgumentException("expectedSize < 0");
+        }
+        this.table = new Table(capacityFor(expectedSize));
+    }
+
+    public PubkeyHashSet() {
+        this(16);
+    }
+
+    /**
+     * 添加公钥hash
+     * @param pubkeyHash 20 字节公钥hash
+     * @return 原先不存在时返回 true
+     */
+    public boolean add(byte[] pubkeyHash) {
+        checkLength(pubkeyHash);
+        return add(pubkeyHash, 0);
+    }
+
+    /**
+     * 添加公钥hash
+     * @param pubkeyHash 公钥hash所在数组
+     * @param offset 起始位置，从该位置读取 20 字节
+     * @return 原先不存在时返回 true
+     */
+    public boolean add(byte[] pubkeyHash, int offset) {
+        return add(readLong(pubkeyHash, offset), readLong(pubkeyHash, offset + 8), readInt(pubkeyHash, offset + 16));
+    }
+
+    /**
+     * 添加地址对应的公钥hash
+     * @param address 地址
+     * @return 原先不存在时返回 true
+     */
+    public boolean add(Address address) {
+        return add(address.hash0(), address.hash1(), address.hash2());
+    }
+
+    /**
+     * 批量添加，只加一次写锁
+     * @param pubkeyHashes 20 字节公钥hash
+     * @return 新增的个数
+     */
+    public int addAll(Collection<byte[]> pubkeyHashes) {
+        for (byte[] pubkeyHash : pubkeyHashes) {
+            checkLength(pubkeyHash);
+        }
+        int added = 0;
+        long stamp = lock.writeLock();
+        try {
+            ensureCapacity(size + pubkeyHashes.size());
+            for (byte[] pubkeyHash : pubkeyHashes) {
+                if (addLocked(readLong(pubkeyHash, 0), readLong(pubkeyHash, 8), readInt(pubkeyHash, 16))) {
+                    added++;
+                }
+            }
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+        return added;
+    }
+
+    /**
+     * 删除公钥hash
+     * 布隆过滤器不支持删除，已删除 key 的位会保留到下次扩容
+     * @param pubkeyHash 20 字节公钥hash
+     * @return 原先存在时返回 true
+     */
+    public boolean remove(byte[] pubkeyHash) {
+        checkLength(pubkeyHash);
+        long a = readLong(pubkeyHash, 0);
+        long b = readLong(pubkeyHash, 8);
+        int c = readInt(pubkeyHash, 16);
+        long stamp = lock.writeLock();
+        try {
+            if (isZero(a, b, c)) {
+                boolean removed = containsZero;
+                if (removed) {
+                    containsZero = false;
+                    size--;
+                }
+                return removed;
+            }
+            Table t = table;
+            int index = t.find(a, b, c);
+            if (index < 0) {
+                return false;
+            }
+            t.removeAt(index);
+            size--;
+            return true;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * 是否包含公钥hash
+     * @param pubkeyHash 20 字节公钥hash
+     * @return
+     */
+    public boolean contains(byte[] pubkeyHash) {
+        checkLength(pubkeyHash);
+        return contains(pubkeyHash, 0);
+    }
+
+    /**
+     * 是否包含公钥hash
+     * @param pubkeyHash 公钥hash所在数组
+     * @param offset 起始位置，从该位置读取 20 字节
+     * @return
+     */
+    public boolean contains(byte[] pubkeyHash, int offset) {
+        return contains(readLong(pubkeyHash, offset), readLong(pubkeyHash, offset + 8), readInt(pubkeyHash, offset + 16));
+    }
+
+    /**
+     * 是否包含地址对应的公钥hash
+     * @param address 地址
+     * @return
+     */
+    public boolean contains(Address address) {
+        return contains(address.hash0(), address.hash1(), address.hash2());
+    }
+
+    /**
+     * 并行扫描公钥hash，使用 ForkJoinPool.commonPool()
+     * @param pubkeyHashes 20 字节公钥hash
+     * @return BitSet 第 i 位为 true 表示第 i 个公钥hash在集合中
+     */
+    public BitSet scan(List<byte[]> pubkeyHashes) {
+        return scan(pubkeyHashes, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * 并行扫描公钥hash
+     * @param pubkeyHashes 20 字节公钥hash
+     * @param pool 执行扫描的线程池
+     * @return BitSet 第 i 位为 true 表示第 i 个公钥hash在集合中
+     */
+    public BitSet scan(List<byte[]> pubkeyHashes, ForkJoinPool pool) {
+        return scan(pubkeyHashes, pool, false);
+    }
+
+    /**
+     * 并行扫描公钥，每个线程复用自己的 AddressDeriver 计算公钥hash，使用 ForkJoinPool.commonPool()
+     * @param publicKeys 公钥
+     * @return BitSet 第 i 位为 true 表示第 i 个公钥的hash在集合中
+     */
+    public BitSet scanPublicKeys(List<byte[]> publicKeys) {
+        return scanPublicKeys(publicKeys, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * 并行扫描公钥，每个线程复用自己的 AddressDeriver 计算公钥hash
+     * @param publicKeys 公钥
+     * @param pool 执行扫描的线程池
+     * @return BitSet 第 i 位为 true 表示第 i 个公钥的hash在集合中
+     */
+    public BitSet scanPublicKeys(List<byte[]> publicKeys, ForkJoinPool pool) {
+        return scan(publicKeys, pool, true);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * 当前槽位数
+     * @return
+     */
+    public int capacity() {
+        return table.capacity;
+    }
+
+    /**
+     * 占用的内存字节数：堆外槽位 + 布隆过滤器
+     * @return
+     */
+    public long memoryBytes() {
+        Table t = table;
+        return (long) t.capacity * SLOT_BYTES + (long) t.bloom.length * Long.BYTES;
+    }
+
+    /**
+     * 清空集合，槽位表恢复到初始大小
+     */
+    public void clear() {
+        long stamp = lock.writeLock();
+        try {
+            table = new Table(capacityFor(16));
+            size = 0;
+            containsZero = false;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    private boolean add(long a, long b, int c) {
+        long stamp = lock.writeLock();
+        try {
+            ensureCapacity(size + 1);
+            return addLocked(a, b, c);
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    private boolean addLocked(long a, long b, int c) {
+        if (isZero(a, b, c)) {
+            if (containsZero) {
+                return false;
+            }
+            containsZero = true;
+            size++;
+            return true;
+        }
+        if (!table.insert(a, b, c)) {
+            return false;
+        }
+        size++;
+        return true;
+    }
+
+    private boolean contains(long a, long b, int c) {
+        if (isZero(a, b, c)) {
+            return containsZero;
+        }
+        long stamp = lock.tryOptimisticRead();
+        if (stamp != 0) {
+            // table 引用一次性读取，槽位与布隆过滤器来自同一张表，不会越界
+            boolean found = table.contains(a, b, c);
+            if (lock.validate(stamp)) {
+                return found;
+            }
+        }
+        stamp = lock.readLock();
+        try {
+            return table.contains(a, b, c);
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * 保证容纳 expectedSize 个元素时负载因子不超过 0.5，需要持有写锁
+     */
+    private void ensureCapacity(int expectedSize) {
+        Table t = table;
+        if ((long) expectedSize * 2 <= t.capacity) {
+            return;
+        }
+        Table resized = new Table(capacityFor(expectedSize));
+        t.copyTo(resized);
+        table = resized;
+    }
+
+    private BitSet scan(List<byte[]> items, ForkJoinPool pool, boolean publicKeys) {
+        BitSet bitSet = new BitSet(items == null ? 0 : items.size());
+        if (items == null || items.isEmpty()) {
+            return bitSet;
+        }
+        List<byte[]> list = items instanceof RandomAccess ? items : new ArrayList<>(items);
+        boolean[] results = new boolean[list.size()];
+        ScanTask task = new ScanTask(this, list, publicKeys, results, 0, list.size());
+        if (list.size() <= SCAN_BATCH_THRESHOLD) {
+            // 数量较少时直接在当前线程执行，省去线程切换
+            task.compute();
+        } else {
+            pool.invoke(task);
+        }
+        for (int i = 0; i < results.length; i++) {
+            if (results[i]) {
+                bitSet.set(i);
+            }
+        }
+        return bitSet;
+    }
+
+    private static int capacityFor(int expectedSize) {
+        long capacity = Long.highestOneBit(Math.max(16L, (long) expectedSize * 2 - 1) << 1);
+        if (capacity > MAX_CAPACITY) {
+            throw new IllegalStateException("PubkeyHashSet capacity exceeded, expectedSize=" + expectedSize);
+        }
+        return (int) capacity;
+    }
+
+    private static boolean isZero(long a, long b, int c) {
+        return a == 0 && b == 0 && c == 0;
+    }
+
+    private static void checkLength(byte[] pubkeyHash) {
+        if (pubkeyHash == null || pubkeyHash.length != AddressDeriver.PUBKEY_HASH_LENGTH) {
+            throw new IllegalArgumentException("pubkeyHash must be " + AddressDeriver.PUBKEY_HASH_LENGTH + " bytes");
+        }
+    }
+
+    private static long readLong(byte[] src, int offset) {
+        return ((long) readInt(src, offset) << 32) | (readInt(src, offset + 4) & 0xFFFFFFFFL);
+    }
+
+    private static int readInt(byte[] src, int offset) {
+        return (src[offset] & 0xFF) << 24
+                | (src[offset + 1] & 0xFF) << 16
+                | (src[offset + 2] & 0xFF) << 8
+                | (src[offset + 3] & 0xFF);
+    }
+
+    /**
+     * 槽位表 + 布隆过滤器，扩容时整体替换
+     * 公钥hash本身已均匀分布：槽位下标取自 b、c，布隆过滤器的块与位取自 a、c，两者互不相关
+     */
+    private static final class Table {
+        private final ByteBuffer slots;
+        private final int capacity;
+        private final int mask;
+        private final long[] bloom;
+        private final int blockMask;
+
+        Table(int capacity) {
+            this.capacity = capacity;
+            this.mask = capacity - 1;
+            this.slots = ByteBuffer.allocateDirect(capacity * SLOT_BYTES).order(ByteOrder.nativeOrder());
+            int blocks = Math.max(1, capacity * BLOOM_BITS_PER_SLOT / (BLOOM_BLOCK_LONGS * Long.SIZE));
+            this.bloom = new long[blocks * BLOOM_BLOCK_LONGS];
+            this.blockMask = blocks - 1;
+        }
+
+        boolean contains(long a, long b, int c) {
+            return mightContain(a, c) && find(a, b, c) >= 0;
+        }
+
+        /**
+         * @return 已存在时返回 false
+         */
+        boolean insert(long a, long b, int c) {
+            int index = slotIndex(b, c);
+            while (true) {
+                int position = index * SLOT_BYTES;
+                long sa = slots.getLong(position);
+                long sb = slots.getLong(position + 8);
+                int sc = slots.getInt(position + 16);
+                if (isZero(sa, sb, sc)) {
+                    // 写到一半的槽位可能被乐观读看到，由 StampedLock 校验后重读
+                    writeSlot(index, a, b, c);
+                    setBloom(a, c);
+                    return true;
+                }
+                if (sa == a && sb == b && sc == c) {
+                    return false;
+                }
+                index = (index + 1) & mask;
+            }
+        }
+
+        int find(long a, long b, int c) {
+            int index = slotIndex(b, c);
+            while (true) {
+                int position = index * SLOT_BYTES;
+                long sa = slots.getLong(position);
+                long sb = slots.getLong(position + 8);
+                int sc = slots.getInt(position + 16);
+                if (sa == a && sb == b && sc == c) {
+                    return index;
+                }
+                if (isZero(sa, sb, sc)) {
+                    return -1;
+                }
+                index = (index + 1) & mask;
+            }
+        }
+
+        /**
+         * 线性探测的后移删除：把后续同一探测链上的元素前移，不留墓碑
+         */
+        void removeAt(int index) {
+            int hole = index;
+            int next = (hole + 1) & mask;
+            while (true) {
+                int position = next * SLOT_BYTES;
+                long sa = slots.getLong(position);
+                long sb = slots.getLong(position + 8);
+                int sc = slots.getInt(position + 16);
+                if (isZero(sa, sb, sc)) {
+                    break;
+                }
+                int home = slotIndex(sb, sc);
+                // home 不在 (hole, next] 循环区间内时，该元素可以前移到 hole
+                if (((next - home) & mask) >= ((next - hole) & mask)) {
+                    writeSlot(hole, sa, sb, sc);
+                    hole = next;
+                }
+                next = (next + 1) & mask;
+            }
+            writeSlot(hole, 0, 0, 0);
+        }
+
+        void copyTo(Table target) {
+            for (int i = 0; i < capacity; i++) {
+                int position = i * SLOT_BYTES;
+                long sa = slots.getLong(position);
+                long sb = slots.getLong(position + 8);
+                int sc = slots.getInt(position + 16);
+                if (!isZero(sa, sb, sc)) {
+                    target.insert(sa, sb, sc);
+                }
+            }
+        }
+
+        private void writeSlot(int index, long a, long b, int c) {
+            int position = index * SLOT_BYTES;
+            slots.putLong(position, a);
+            slots.putLong(position + 8, b);
+            slots.putInt(position + 16, c);
+        }
+
+        private int slotIndex(long b, int c) {
+            return (int) (b ^ (b >>> 32) ^ c) & mask;
+        }
+
+        private boolean mightContain(long a, int c) {
+            int block = ((int) a & blockMask) * BLOOM_BLOCK_LONGS;
+            int high = (int) (a >>> 32);
+            return bloomBit(block, high) && bloomBit(block, high >>> 9)
+                    && bloomBit(block, high >>> 18) && bloomBit(block, c);
+        }
+
+        private void setBloom(long a, int c) {
+            int block = ((int) a & blockMask) * BLOOM_BLOCK_LONGS;
+            int high = (int) (a >>> 32);
+            setBloomBit(block, high);
+            setBloomBit(block, high >>> 9);
+            setBloomBit(block, high >>> 18);
+            setBloomBit(block, c);
+        }
+
+        /**
+         * 取 bits 低 9 位作为块内位置
+         */
+        private boolean bloomBit(int block, int bits) {
+            return (bloom[block + ((bits >>> 6) & 7)] & (1L << bits)) != 0;
+        }
+
+        private void setBloomBit(int block, int bits) {
+            bloom[block + ((bits >>> 6) & 7)] |= 1L << bits;
+        }
+    }
+
+    private static class ScanTask extends RecursiveAction {
+        private static final long serialVersionUID = 6023816435962788104L;
+        private final PubkeyHashSet set;
+        private final List<byte[]> items;
+        private final boolean publicKeys;
+        private final boolean[] results;
+        private final int from;
+        private final int to;
+
+        ScanTask(PubkeyHashSet set, List<byte[]> items, boolean publicKeys, boolean[] results, int from, int to) {
+            this.set = set;
+            this.items = items;
+            this.publicKeys = publicKeys;
+            this.results = results;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= SCAN_BATCH_THRESHOLD) {
+                if (publicKeys) {
+                    AddressDeriver deriver = AddressDeriver.current();
+                    byte[] pubkeyHash = new byte[AddressDeriver.PUBKEY_HASH_LENGTH];
+                    for (int i = from; i < to; i++) {
+                        deriver.pubkeyHash(items.get(i), pubkeyHash, 0);
+                        results[i] = set.contains(pubkeyHash, 0);
+                    }
+                } else {
+                    for (int i = from; i < to; i++) {
+                        byte[] pubkeyHash = items.get(i);
+                        results[i] = pubkeyHash != null && pubkeyHash.length == AddressDeriver.PUBKEY_HASH_LENGTH
+                                && set.contains(pubkeyHash, 0);
+                    }
+                }
+                return;
+            }
+            int mid = (from + to) >>> 1;
+            invokeAll(new ScanTask(set, items, publicKeys, results, from, mid),
+                    new ScanTask(set, items, publicKeys, results, mid, to));
+        }
+    }
+}
@@ -4,14 +4,18 @@
  */
 package com.datacbc.wallet;
 
+import com.alibaba.fastjson.annotation.JSONCreator;
+import com.alibaba.fastjson.annotation.JSONField;
 import com.datacbc.exception.ServiceException;
 import com.datacbc.util.Base58Check;
 import com.datacbc.util.ByteUtils;
+import com.datacbc.util.ECDSACodec;
+import com.datacbc.util.ECDSASigner;
 import com.datacbc.util.ECDSAUtils;
+import com.datacbc.util.PublicKeyCache;
 import lombok.Data;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.codec.digest.DigestUtils;
-import org.bouncycastle.crypto.digests.RIPEMD160Digest;
 import org.bouncycastle.jcajce.provider.asymmetric.ec.BCECPrivateKey;
 import org.bouncycastle.jcajce.provider.asymmetric.ec.BCECPublicKey;
 
@@ -19,6 +23,7 @@ import java.io.ByteArrayOutputStream;
 import java.io.Serializable;
 import java.security.KeyPair;
 import java.util.Arrays;
+import java.util.List;
 
 /**
  * 钱包
@@ -46,10 +51,49 @@ public class Wallet implements Serializable {
     private byte[] publicKey;
 
 
+    /**
+     * 生成新密钥对的钱包
+     * 通过反射实例化（Kryo、fastjson、Spring）时也会生成一次密钥对再被覆盖，
+     * 新代码请使用 generate() 生成、of() 加载
+     */
+    @Deprecated
     public Wallet() {
         initWallet();
     }
 
+    /**
+     * 使用已有的密钥对创建钱包，不生成新密钥
+     * @param privateKey PKCS8 编码的私钥
+     * @param publicKey X509 编码的公钥
+     */
+    Wallet(byte[] privateKey, byte[] publicKey) {
+        this.privateKey = privateKey;
+        this.publicKey = publicKey;
+    }
+
+    /**
+     * 生成新钱包
+     * @return
+     */
+    public static Wallet generate() {
+        Wallet wallet = new Wallet(null, null);
+        wallet.initWallet();
+        return wallet;
+    }
+
+    /**
+     * 加载已有密钥对的钱包，不生成新密钥，也不校验密钥
+     * fastjson 反序列化时使用该方法
+     * @param privateKey PKCS8 编码的私钥
+     * @param publicKey X509 编码的公钥
+     * @return
+     */
+    @JSONCreator
+    public static Wallet of(@JSONField(name = "privateKey") byte[] privateKey,
+                            @JSONField(name = "publicKey") byte[] publicKey) {
+        return new Wallet(privateKey, publicKey);
+    }
+
     /**
      * 初始化钱包
      */
@@ -85,6 +129,32 @@ public class Wallet implements Serializable {
         return getAddressByPubkeyHash(pubkeyHashBytes);
     }
 
+    /**
+     * 批量通过公钥获取地址，多核并行
+     * @param publicKeys 公钥
+     * @return 与 publicKeys 顺序一致的地址
+     */
+    public static List<String> getAddressesByPubkeys(List<byte[]> publicKeys) {
+        return AddressDeriver.deriveAddresses(publicKeys);
+    }
+
+    /**
+     * 通过可恢复签名获取签名者的钱包地址，无需传输与解析公钥
+     * @param data 被签名的数据
+     * @param recoverableSign ECDSAUtils.signRecoverable 生成的签名
+     * @return
+     */
+    public static String getAddressBySignature(byte[] data, byte[] recoverableSign) {
+        byte[] publicKey;
+        try {
+            publicKey = ECDSAUtils.recoverPublicKey(data, recoverableSign);
+        } catch (Exception e) {
+            log.error("通过签名恢复公钥失败", e);
+            throw new ServiceException("错误的签名");
+        }
+        return getAddressByPubkey(publicKey);
+    }
+
     /**
      * 通过公钥hash获取地址
      * @param pubkeyHash 公钥hash
@@ -99,6 +169,9 @@ public class Wallet implements Serializable {
         }
     }
     private static String getAddressByPubkeyHash(byte[] pubkeyHashBytes) {
+        if (pubkeyHashBytes.length == AddressDeriver.PUBKEY_HASH_LENGTH) {
+            return AddressDeriver.current().addressOfPubkeyHash(pubkeyHashBytes);
+        }
         try {
             // 2. 添加版本 0x00
             ByteArrayOutputStream addrStream = new ByteArrayOutputStream();
@@ -138,6 +211,47 @@ public class Wallet implements Serializable {
     }
 
 
+    /**
+     * 创建持有本钱包私钥的签名器，适合同一钱包反复签名
+     * @return
+     */
+    public ECDSASigner newSigner() {
+        try {
+            return ECDSASigner.of(this.privateKey);
+        } catch (Exception e) {
+            log.error("Fail to create signer ! ", e);
+            throw new ServiceException("错误的私钥", e);
+        }
+    }
+
+
+    /**
+     * 32 字节原始私钥
+     * @return
+     */
+    public byte[] toRawPrivateKey() {
+        try {
+            return ECDSACodec.toRawPrivateKey(this.privateKey);
+        } catch (Exception e) {
+            log.error("私钥转换失败", e);
+            throw new ServiceException("错误的私钥", e);
+        }
+    }
+
+    /**
+     * 33 字节压缩公钥
+     * @return
+     */
+    public byte[] toCompressedPublicKey() {
+        try {
+            return ECDSACodec.toCompressedPublicKey(this.publicKey);
+        } catch (Exception e) {
+            log.error("公钥转换失败", e);
+            throw new ServiceException("错误的公钥", e);
+        }
+    }
+
+
     ///比特币的钱包地址生成方式
     /**
      * 双重Hash
@@ -158,12 +272,20 @@ public class Wallet implements Serializable {
      * @return ipeMD160Hash(sha256 ( pubkey))
      */
     public static byte[] getPubkeyHashByPubkey(byte[] pubKey) {
-        //1. 先对公钥做 sha256 处理
-        byte[] shaHashedKey = DigestUtils.sha256(pubKey);
-        RIPEMD160Digest ripemd160 = new RIPEMD160Digest();
-        ripemd160.update(shaHashedKey, 0, shaHashedKey.length);
-        byte[] output = new byte[ripemd160.getDigestSize()];
-        ripemd160.doFinal(output, 0);
+        // 公钥已被验签缓存过时，直接复用缓存中的公钥hash
+        PublicKeyCache.Entry entry = PublicKeyCache.getDefault().peek(pubKey);
+        if (entry != null) {
+            byte[] cached = entry.getPubkeyHash();
+            if (cached != null) {
+                return cached;
+            }
+        }
+        // RIPEMD160(SHA256(pubkey))，复用当前线程的摘要对象
+        byte[] output = new byte[AddressDeriver.PUBKEY_HASH_LENGTH];
+        AddressDeriver.current().pubkeyHash(pubKey, output, 0);
+        if (entry != null) {
+            entry.setPubkeyHash(output);
+        }
         return output;
     }
 
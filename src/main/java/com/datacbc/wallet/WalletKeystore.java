@@ -0,0 +1,445 @@
+/*
+ * chenhx
+ * Copyright (C) 2013-2022 All Rights Reserved.
+ */
+package com.datacbc.wallet;
+
+import com.datacbc.util.AESUtils;
+import com.datacbc.util.SerializeUtils;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.codec.digest.DigestUtils;
+
+import javax.crypto.AEADBadTagException;
+import javax.crypto.SecretKey;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.stream.IntStream;
+
+/**
+ * @author chenhx
+ * @version 0.0.1
+ * @className WalletKeystore.java
+ * @date 2026-10-18 10:13
+ * @description 加密钱包文件
+ * 文件结构：文件头 | 钱包记录 ... | 索引
+ * 文件头：魔数、版本号、钱包数、索引位置、密钥校验块；
+ * 钱包记录：SerializeUtils 序列化后用 AES-GCM 单独加密，公钥hash作为附加认证数据，记录只能用对应的索引项解密；
+ * 索引：按公钥hash排序的 (公钥hash, 记录位置, 记录长度)，每项 32 字节。
+ * 密钥校验块以文件头前 24 字节和索引的 SHA-256 作为附加认证数据，钱包数、索引位置或索引项被改动（如删掉索引项）时打开失败。
+ * 打开时只映射文件、校验密钥和索引摘要，不解密任何记录：按地址查找在映射的索引上二分，只读取并解密一条记录；
+ * 批量解锁按记录并行解密
+ */
+@Slf4j
+public final class WalletKeystore implements Closeable {
+    /**
+     * 魔数 "DCKS"
+     */
+    private static final int MAGIC = 0x44434B53;
+    private static final int VERSION = 1;
+    /**
+     * 密钥校验块：固定明文加密后存放在文件头，打开时解密以尽早发现密钥错误，同时认证文件头和索引
+     */
+    private static final byte[] KEY_CHECK_PLAINTEXT = new byte[16];
+    private static final int KEY_CHECK_LENGTH = AESUtils.GCM_NONCE_LENGTH + KEY_CHECK_PLAINTEXT.length + AESUtils.GCM_TAG_BITS / 8;
+    /**
+     * 文件头：magic(4) version(4) count(4) reserved(4) indexOffset(8) keyCheck
+     */
+    private static final int HEADER_FIELDS_LENGTH = 24;
+    private static final int HEADER_LENGTH = HEADER_FIELDS_LENGTH + KEY_CHECK_LENGTH;
+    /**
+     * 索引项：公钥hash(20) offset(8) length(4)
+     */
+    private static final int INDEX_ENTRY_LENGTH = AddressDeriver.PUBKEY_HASH_LENGTH + 12;
+    /**
+     * 单条记录长度上限
+     */
+    private static final int MAX_RECORD_LENGTH = 64 * 1024;
+    /**
+     * 记录区按段映射，相邻段重叠 MAX_RECORD_LENGTH，任意一条记录都完整落在某一段内
+     */
+    private static final long SEGMENT_SIZE = 1L << 30;
+    /**
+     * 写入时每批并行加密的钱包数
+     */
+    private static final int WRITE_BATCH_SIZE = 4096;
+
+    private final FileChannel channel;
+    private final SecretKey key;
+    private final int count;
+    private final MappedByteBuffer index;
+    private final MappedByteBuffer[] segments;
+    private volatile boolean closed;
+
+    private WalletKeystore(FileChannel channel, SecretKey key, int count, MappedByteBuffer index, MappedByteBuffer[] segments) {
+        this.channel = channel;
+        this.key = key;
+        this.count = count;
+        this.index = index;
+        this.segments = segments;
+    }
+
+    /**
+     * 写入钱包文件，已存在时整体替换
+     * 先写入同目录下的临时文件（每次调用各自创建），完成后再替换，写入失败不会破坏原文件
+     * @param path 文件路径
+     * @param wallets 钱包，公钥相同的钱包只保留第一个
+     * @param key AES 密钥
+     * @throws IOException
+     * @throws GeneralSecurityException
+     */
+    public static void write(Path path, Collection<Wallet> wallets, SecretKey key) throws IOException, GeneralSecurityException {
+        Path tmp = Files.createTempFile(path.toAbsolutePath().getParent(), path.getFileName().toString(), ".tmp");
+        List<IndexEntry> entries = new ArrayList<>(wallets.size());
+        try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(tmp,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE), 1 << 16)) {
+            out.write(new byte[HEADER_LENGTH]);
+            long offset = HEADER_LENGTH;
+            Iterator<Wallet> iterator = wallets.iterator();
+            List<Wallet> batch = new ArrayList<>(WRITE_BATCH_SIZE);
+            while (iterator.hasNext()) {
+                batch.clear();
+                while (iterator.hasNext() && batch.size() < WRITE_BATCH_SIZE) {
+                    batch.add(iterator.next());
+                }
+                byte[][] pubkeyHashes = new byte[batch.size()][];
+                byte[][] records = encryptBatch(batch, key, pubkeyHashes);
+                for (int i = 0; i < records.length; i++) {
+                    out.write(records[i]);
+                    entries.add(new IndexEntry(Address.fromPubkeyHash(pubkeyHashes[i]), offset, records[i].length));
+                    offset += records[i].length;
+                }
+            }
+            entries.sort((a, b) -> a.address.compareTo(b.address));
+            int count = 0;
+            MessageDigest indexDigest = DigestUtils.getSha256Digest();
+            byte[] entry = new byte[INDEX_ENTRY_LENGTH];
+            ByteBuffer entryBuffer = ByteBuffer.wrap(entry);
+            for (int i = 0; i < entries.size(); i++) {
+                IndexEntry e = entries.get(i);
+                if (i > 0 && e.address.equals(entries.get(i - 1).address)) {
+                    log.warn("钱包文件中存在重复公钥，只保留第一个 address={}", e.address);
+                    continue;
+                }
+                e.address.writePubkeyHash(entry, 0);
+                entryBuffer.putLong(AddressDeriver.PUBKEY_HASH_LENGTH, e.offset);
+                entryBuffer.putInt(AddressDeriver.PUBKEY_HASH_LENGTH + 8, e.length);
+                out.write(entry);
+                indexDigest.update(entry);
+                count++;
+            }
+            out.flush();
+            writeHeader(tmp, count, offset, indexDigest.digest(), key);
+        } catch (IOException | GeneralSecurityException | RuntimeException e) {
+            Files.deleteIfExists(tmp);
+            throw e;
+        }
+        Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * 打开钱包文件：映射文件，校验密钥、文件头和索引，不解密钱包记录
+     * @param path 文件路径
+     * @param key AES 密钥
+     * @return
+     * @throws IOException 文件格式错误
+     * @throws GeneralSecurityException 密钥错误，或文件头、索引被改动
+     */
+    public static WalletKeystore open(Path path, SecretKey key) throws IOException, GeneralSecurityException {
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+        try {
+            long size = channel.size();
+            if (size < HEADER_LENGTH) {
+                throw new IOException("Not a wallet keystore: " + path);
+            }
+            ByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_LENGTH);
+            if (header.getInt(0) != MAGIC) {
+                throw new IOException("Not a wallet keystore: " + path);
+            }
+            if (header.getInt(4) != VERSION) {
+                throw new IOException("Unsupported wallet keystore version: " + header.getInt(4));
+            }
+            int count = header.getInt(8);
+            long indexOffset = header.getLong(16);
+            if (count < 0 || indexOffset < HEADER_LENGTH || indexOffset + (long) count * INDEX_ENTRY_LENGTH != size) {
+                throw new IOException("Corrupted wallet keystore: " + path);
+            }
+            MappedByteBuffer index = channel.map(FileChannel.MapMode.READ_ONLY, indexOffset, (long) count * INDEX_ENTRY_LENGTH);
+            MessageDigest indexDigest = DigestUtils.getSha256Digest();
+            indexDigest.update(index.duplicate());
+            byte[] keyCheck = new byte[KEY_CHECK_LENGTH];
+            header.position(HEADER_FIELDS_LENGTH);
+            header.get(keyCheck);
+            AESUtils.decryptGcm(keyCheck, key, keyCheckAad(header, indexDigest.digest()));
+
+            int segmentCount = (int) ((indexOffset - HEADER_LENGTH + SEGMENT_SIZE - 1) / SEGMENT_SIZE);
+            MappedByteBuffer[] segments = new MappedByteBuffer[segmentCount];
+            for (int i = 0; i < segmentCount; i++) {
+                long start = HEADER_LENGTH + i * SEGMENT_SIZE;
+                long length = Math.min(SEGMENT_SIZE + MAX_RECORD_LENGTH, indexOffset - start);
+                segments[i] = channel.map(FileChannel.MapMode.READ_ONLY, start, length);
+            }
+            return new WalletKeystore(channel, key, count, index, segments);
+        } catch (IOException | GeneralSecurityException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * 钱包数
+     * @return
+     */
+    public int size() {
+        return count;
+    }
+
+    /**
+     * 是否包含地址对应的钱包，只查索引，不解密
+     * @param address 地址
+     * @return
+     */
+    public boolean contains(Address address) {
+        checkOpen();
+        return find(address) >= 0;
+    }
+
+    /**
+     * 第 i 个钱包的地址，按公钥hash排序
+     * @param i 序号
+     * @return
+     */
+    public Address addressAt(int i) {
+        checkOpen();
+        checkIndex(i);
+        return readAddress(i);
+    }
+
+    /**
+     * 按地址读取并解密一个钱包
+     * @param address 钱包地址
+     * @return 不存在时返回 null
+     * @throws GeneralSecurityException 记录被篡改
+     */
+    public Wallet get(String address) throws GeneralSecurityException {
+        return get(Address.fromString(address));
+    }
+
+    /**
+     * 按地址读取并解密一个钱包
+     * @param address 地址
+     * @return 不存在时返回 null
+     * @throws GeneralSecurityException 记录被篡改
+     */
+    public Wallet get(Address address) throws GeneralSecurityException {
+        checkOpen();
+        int i = find(address);
+        return i < 0 ? null : unlock(i);
+    }
+
+    /**
+     * 读取并解密第 i 个钱包
+     * @param i 序号，按公钥hash排序
+     * @return
+     * @throws GeneralSecurityException 记录被篡改
+     */
+    public Wallet unlock(int i) throws GeneralSecurityException {
+        checkOpen();
+        checkIndex(i);
+        int position = i * INDEX_ENTRY_LENGTH;
+        byte[] pubkeyHash = new byte[AddressDeriver.PUBKEY_HASH_LENGTH];
+        ByteBuffer entry = index.duplicate();
+        entry.position(position);
+        entry.get(pubkeyHash);
+        long offset = index.getLong(position + AddressDeriver.PUBKEY_HASH_LENGTH);
+        int length = index.getInt(position + AddressDeriver.PUBKEY_HASH_LENGTH + 8);
+        byte[] record = readRecord(offset, length);
+        byte[] plainText = AESUtils.decryptGcm(record, key, pubkeyHash);
+        return SerializeUtils.deserialize(plainText, Wallet.class);
+    }
+
+    /**
+     * 并行解密全部钱包
+     * @return 按公钥hash排序的钱包
+     * @throws GeneralSecurityException 任意一条记录被篡改
+     */
+    public List<Wallet> unlockAll() throws GeneralSecurityException {
+        checkOpen();
+        Wallet[] wallets = new Wallet[count];
+        try {
+            IntStream.range(0, count).parallel().forEach(i -> {
+                try {
+                    wallets[i] = unlock(i);
+                } catch (GeneralSecurityException e) {
+                    throw new KeystoreException(e);
+                }
+            });
+        } catch (KeystoreException e) {
+            throw (GeneralSecurityException) e.getCause();
+        }
+        return Arrays.asList(wallets);
+    }
+
+    /**
+     * 关闭文件，之后不能再读取钱包
+     * @throws IOException
+     */
+    @Override
+    public void close() throws IOException {
+        closed = true;
+        channel.close();
+    }
+
+    /**
+     * 在索引上二分查找
+     * @return 序号，不存在时返回 -1
+     */
+    private int find(Address address) {
+        int low = 0;
+        int high = count - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int c = readAddress(mid).compareTo(address);
+            if (c < 0) {
+                low = mid + 1;
+            } else if (c > 0) {
+                high = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return -1;
+    }
+
+    private Address readAddress(int i) {
+        int position = i * INDEX_ENTRY_LENGTH;
+        byte[] pubkeyHash = new byte[AddressDeriver.PUBKEY_HASH_LENGTH];
+        ByteBuffer entry = index.duplicate();
+        entry.position(position);
+        entry.get(pubkeyHash);
+        return Address.fromPubkeyHash(pubkeyHash, 0);
+    }
+
+    private byte[] readRecord(long offset, int length) throws AEADBadTagException {
+        long relative = offset - HEADER_LENGTH;
+        int segment = (int) (relative / SEGMENT_SIZE);
+        if (relative < 0 || length <= 0 || length > MAX_RECORD_LENGTH || segment >= segments.length) {
+            throw new AEADBadTagException("Corrupted wallet record at " + offset);
+        }
+        ByteBuffer buffer = segments[segment].duplicate();
+        int position = (int) (relative - (long) segment * SEGMENT_SIZE);
+        if (position + length > buffer.limit()) {
+            throw new AEADBadTagException("Corrupted wallet record at " + offset);
+        }
+        byte[] record = new byte[length];
+        buffer.position(position);
+        buffer.get(record);
+        return record;
+    }
+
+    /**
+     * 关闭后映射仍然可读，需要显式检查
+     */
+    private void checkOpen() {
+        if (closed) {
+            throw new IllegalStateException("wallet keystore is closed");
+        }
+    }
+
+    private void checkIndex(int i) {
+        if (i < 0 || i >= count) {
+            throw new IndexOutOfBoundsException("index " + i + ", size " + count);
+        }
+    }
+
+    /**
+     * 并行序列化、加密一批钱包
+     */
+    private static byte[][] encryptBatch(List<Wallet> batch, SecretKey key, byte[][] pubkeyHashes) throws GeneralSecurityException {
+        byte[][] records = new byte[batch.size()][];
+        try {
+            IntStream.range(0, batch.size()).parallel().forEach(i -> {
+                Wallet wallet = batch.get(i);
+                byte[] pubkeyHash = Wallet.getPubkeyHashByPubkey(wallet.getPublicKey());
+                try {
+                    records[i] = AESUtils.encryptGcm(SerializeUtils.serialize(wallet, Wallet.class), key, pubkeyHash);
+                } catch (GeneralSecurityException e) {
+                    throw new KeystoreException(e);
+                }
+                if (records[i].length > MAX_RECORD_LENGTH) {
+                    throw new IllegalArgumentException("wallet record too large: " + records[i].length);
+                }
+                pubkeyHashes[i] = pubkeyHash;
+            });
+        } catch (KeystoreException e) {
+            throw (GeneralSecurityException) e.getCause();
+        }
+        return records;
+    }
+
+    private static void writeHeader(Path path, int count, long indexOffset, byte[] indexHash, SecretKey key)
+            throws IOException, GeneralSecurityException {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_LENGTH);
+        header.putInt(MAGIC).putInt(VERSION).putInt(count).putInt(0).putLong(indexOffset);
+        header.put(AESUtils.encryptGcm(KEY_CHECK_PLAINTEXT, key, keyCheckAad(header, indexHash)));
+        header.flip();
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE)) {
+            while (header.hasRemaining()) {
+                channel.write(header, header.position());
+            }
+            channel.force(true);
+        }
+    }
+
+    /**
+     * 密钥校验块的附加认证数据：文件头前 24 字节 + 索引的 SHA-256
+     * @param header 文件头，从位置 0 读取，不改变原 buffer 的位置
+     * @param indexHash 索引的 SHA-256
+     */
+    private static byte[] keyCheckAad(ByteBuffer header, byte[] indexHash) {
+        byte[] aad = new byte[HEADER_FIELDS_LENGTH + indexHash.length];
+        ByteBuffer fields = header.duplicate();
+        fields.position(0);
+        fields.get(aad, 0, HEADER_FIELDS_LENGTH);
+        System.arraycopy(indexHash, 0, aad, HEADER_FIELDS_LENGTH, indexHash.length);
+        return aad;
+    }
+
+    private static final class IndexEntry {
+        private final Address address;
+        private final long offset;
+        private final int length;
+
+        IndexEntry(Address address, long offset, int length) {
+            this.address = address;
+            this.offset = offset;
+            this.length = length;
+        }
+    }
+
+    /**
+     * 在并行流中传递受检异常
+     */
+    private static final class KeystoreException extends RuntimeException {
+        private static final long serialVersionUID = -6504473326395437617L;
+
+        KeystoreException(GeneralSecurityException cause) {
+            super(cause);
+        }
+    }
+}
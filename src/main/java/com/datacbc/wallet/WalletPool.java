@@ -0,0 +1,241 @@
+/*
+ * chenhx
+ * Copyright (C) 2013-2022 All Rights Reserved.
+ */
+package com.datacbc.wallet;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.Closeable;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * @author chenhx
+ * @version 0.0.1
+ * @className WalletPool.java
+ * @date 2026-10-18 10:06
+ * @description 预生成钱包池
+ * 后台线程预先生成密钥对放入队列，创建钱包时直接出队；
+ * 队列深度低于低水位时触发后台补充，队列为空时退回到当前线程同步生成
+ */
+@Slf4j
+public final class WalletPool implements Closeable {
+    /**
+     * 池容量的系统属性名
+     */
+    public static final String CAPACITY_PROPERTY = "datacbc.wallet.pool.capacity";
+    /**
+     * 低水位的系统属性名，默认为容量的 1/4
+     */
+    public static final String LOW_WATER_MARK_PROPERTY = "datacbc.wallet.pool.lowWaterMark";
+    /**
+     * 补充线程数的系统属性名
+     */
+    public static final String REFILL_THREADS_PROPERTY = "datacbc.wallet.pool.refillThreads";
+
+    private static final int DEFAULT_CAPACITY = 1000;
+
+    private final ArrayBlockingQueue<Wallet> wallets;
+    private final int lowWaterMark;
+    private final int refillThreads;
+    private final ExecutorService refillExecutor;
+    /**
+     * 正在运行的补充任务数
+     */
+    private final AtomicInteger activeRefills = new AtomicInteger();
+
+    private final LongAdder takeCount = new LongAdder();
+    private final LongAdder fallbackCount = new LongAdder();
+    private final LongAdder refillCount = new LongAdder();
+    private final LongAdder refilledWallets = new LongAdder();
+    private final LongAdder refillNanos = new LongAdder();
+
+    private volatile boolean closed;
+
+    /**
+     * @param capacity 池容量
+     * @param lowWaterMark 队列深度低于该值时触发后台补充
+     * @param refillThreads 补充线程数
+     */
+    public WalletPool(int capacity, int lowWaterMark, int refillThreads) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("capacity must be positive");
+        }
+        if (lowWaterMark < 0 || lowWaterMark > capacity) {
+            throw new IllegalArgumentException("lowWaterMark must be between 0 and capacity");
+        }
+        if (refillThreads <= 0) {
+            throw new IllegalArgumentException("refillThreads must be positive");
+        }
+        this.wallets = new ArrayBlockingQueue<>(capacity);
+        this.lowWaterMark = lowWaterMark;
+        this.refillThreads = refillThreads;
+        this.refillExecutor = new ThreadPoolExecutor(refillThreads, refillThreads, 0L, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<>(),
+                new ThreadFactoryBuilder().setNameFormat("wallet-pool-refill-%d").setDaemon(true).build());
+        refill();
+    }
+
+    /**
+     * 默认钱包池，首次调用时创建并开始预生成
+     * 参数取自系统属性 datacbc.wallet.pool.*
+     * @return
+     */
+    public static WalletPool getDefault() {
+        return DefaultHolder.DEFAULT;
+    }
+
+    /**
+     * 取出一个钱包，池为空时在当前线程同步生成
+     * @return
+     */
+    public Wallet take() {
+        takeCount.increment();
+        Wallet wallet = wallets.poll();
+        if (wallets.size() < lowWaterMark) {
+            refill();
+        }
+        if (wallet == null) {
+            fallbackCount.increment();
+            wallet = Wallet.generate();
+        }
+        return wallet;
+    }
+
+    /**
+     * 当前队列深度
+     * @return
+     */
+    public int depth() {
+        return wallets.size();
+    }
+
+    public int capacity() {
+        return wallets.size() + wallets.remainingCapacity();
+    }
+
+    public int getLowWaterMark() {
+        return lowWaterMark;
+    }
+
+    /**
+     * 取出次数
+     * @return
+     */
+    public long takeCount() {
+        return takeCount.sum();
+    }
+
+    /**
+     * 池为空、同步生成的次数
+     * @return
+     */
+    public long fallbackCount() {
+        return fallbackCount.sum();
+    }
+
+    /**
+     * 后台补充任务执行次数
+     * @return
+     */
+    public long refillCount() {
+        return refillCount.sum();
+    }
+
+    /**
+     * 后台补充生成的钱包数
+     * @return
+     */
+    public long refilledWallets() {
+        return refilledWallets.sum();
+    }
+
+    /**
+     * 单个补充线程每秒生成的钱包数
+     * @return 尚未补充过时返回 0
+     */
+    public double refillRate() {
+        long nanos = refillNanos.sum();
+        return nanos == 0 ? 0 : refilledWallets.sum() * 1e9 / nanos;
+    }
+
+    /**
+     * 停止后台补充并清空队列
+     */
+    @Override
+    public void close() {
+        closed = true;
+        refillExecutor.shutdownNow();
+        wallets.clear();
+    }
+
+    /**
+     * 触发后台补充，已有补充任务在运行时不重复提交
+     */
+    private void refill() {
+        while (!closed) {
+            int active = activeRefills.get();
+            if (active >= refillThreads) {
+                return;
+            }
+            if (activeRefills.compareAndSet(active, active + 1)) {
+                try {
+                    refillExecutor.execute(this::doRefill);
+                } catch (RejectedExecutionException e) {
+                    activeRefills.decrementAndGet();
+                    return;
+                }
+            }
+        }
+    }
+
+    private void doRefill() {
+        refillCount.increment();
+        long start = System.nanoTime();
+        long generated = 0;
+        boolean failed = false;
+        try {
+            while (!closed && wallets.remainingCapacity() > 0) {
+                if (!wallets.offer(Wallet.generate())) {
+                    break;
+                }
+                generated++;
+            }
+        } catch (RuntimeException e) {
+            failed = true;
+            log.error("钱包池补充失败", e);
+        } finally {
+            refilledWallets.add(generated);
+            refillNanos.add(System.nanoTime() - start);
+            activeRefills.decrementAndGet();
+        }
+        if (closed) {
+            // close 清空队列时本任务可能正在生成，之后放入的钱包在这里清掉
+            wallets.clear();
+            return;
+        }
+        // 任务结束前被取走的部分，由于当时任务仍在运行而未触发补充，这里补上
+        if (!failed && wallets.size() < lowWaterMark) {
+            refill();
+        }
+    }
+
+    private static final class DefaultHolder {
+        private static final WalletPool DEFAULT = createDefault();
+
+        private static WalletPool createDefault() {
+            int capacity = Integer.getInteger(CAPACITY_PROPERTY, DEFAULT_CAPACITY);
+            int lowWaterMark = Integer.getInteger(LOW_WATER_MARK_PROPERTY, capacity / 4);
+            int refillThreads = Integer.getInteger(REFILL_THREADS_PROPERTY, 1);
+            return new WalletPool(capacity, lowWaterMark, refillThreads);
+        }
+    }
+}
@@ -0,0 +1,43 @@
+/*
+ * chenhx
+ * Copyright (C) 2013-2022 All Rights Reserved.
+ */
+package com.datacbc.wallet;
+
+import com.esotericsoftware.kryo.Kryo;
+import com.esotericsoftware.kryo.Serializer;
+import com.esotericsoftware.kryo.io.Input;
+import com.esotericsoftware.kryo.io.Output;
+
+/**
+ * @author chenhx
+ * @version 0.0.1
+ * @className WalletSerializer.java
+ * @date 2026-10-18 10:11
+ * @description 钱包的 Kryo 序列化器
+ * 直接读写私钥、公钥字节，反序列化时通过 Wallet.of 创建，不会生成密钥对。
+ * 字段顺序与写法与 Kryo 默认的 FieldSerializer 相同（privateKey、publicKey，均为 writeObjectOrNull），
+ * 注册前序列化的钱包数据仍可读取
+ */
+public class WalletSerializer extends Serializer<Wallet> {
+
+    @Override
+    public void write(Kryo kryo, Output output, Wallet wallet) {
+        kryo.writeObjectOrNull(output, wallet.getPrivateKey(), byte[].class);
+        kryo.writeObjectOrNull(output, wallet.getPublicKey(), byte[].class);
+    }
+
+    @Override
+    public Wallet read(Kryo kryo, Input input, Class<? extends Wallet> type) {
+        byte[] privateKey = kryo.readObjectOrNull(input, byte[].class);
+        byte[] publicKey = kryo.readObjectOrNull(input, byte[].class);
+        return Wallet.of(privateKey, publicKey);
+    }
+
+    @Override
+    public Wallet copy(Kryo kryo, Wallet original) {
+        byte[] privateKey = original.getPrivateKey();
+        byte[] publicKey = original.getPublicKey();
+        return Wallet.of(privateKey == null ? null : privateKey.clone(), publicKey == null ? null : publicKey.clone());
+    }
+}
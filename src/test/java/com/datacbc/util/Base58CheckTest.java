@@ -0,0 +1,178 @@
+/*
+ * chenhx
+ * Copyright (C) 2013-2022 All Rights Reserved.
+ */
+package com.datacbc.util;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * @author chenhx
+ * @version 0.0.1
+ * @className Base58CheckTest.java
+ * @date 2026-10-18 10:36
+ * @description 钱包地址校验与解码：校验码、版本号、非法字符、前导 '1'；
+ * 以及 isValidAddress 与 base58ToBytes 的对比基准，-Ddatacbc.benchmark=true 时执行
+ */
+class Base58CheckTest {
+
+    private static final int PAYLOAD_BYTES = 21;
+
+    @Test
+    void acceptsValidAddress() {
+        byte[] payload = payload(0x00, 1);
+        String address = Base58Check.bytesToBase58(payload);
+        assertTrue(Base58Check.isValidAddress(address));
+        byte[] out = new byte[PAYLOAD_BYTES];
+        assertEquals(PAYLOAD_BYTES, Base58Check.tryDecode(address, out));
+        assertArrayEquals(payload, out);
+        assertArrayEquals(payload, Base58Check.base58ToBytes(address));
+    }
+
+    @Test
+    void rejectsBadChecksum() {
+        String address = Base58Check.bytesToBase58(payload(0x00, 2));
+        char last = address.charAt(address.length() - 1);
+        String tampered = address.substring(0, address.length() - 1) + (last == 'z' ? 'y' : 'z');
+        assertFalse(Base58Check.isValidAddress(tampered));
+        assertEquals(-1, Base58Check.tryDecode(tampered, new byte[PAYLOAD_BYTES]));
+        assertThrows(IllegalArgumentException.class, () -> Base58Check.base58ToBytes(tampered));
+    }
+
+    @Test
+    void rejectsWrongVersionByte() {
+        for (int version : new int[]{0x01, 0x05, 0x6F, 0xFF}) {
+            byte[] payload = payload(version, 3);
+            String address = Base58Check.bytesToBase58(payload);
+            assertFalse(Base58Check.isValidAddress(address), "version " + version);
+            // tryDecode 不限制版本号，只校验校验码
+            byte[] out = new byte[PAYLOAD_BYTES];
+            assertEquals(PAYLOAD_BYTES, Base58Check.tryDecode(address, out));
+            assertArrayEquals(payload, out);
+        }
+    }
+
+    @Test
+    void rejectsCharactersOutsideAlphabet() {
+        String address = Base58Check.bytesToBase58(payload(0x00, 4));
+        for (char c : new char[]{'0', 'O', 'I', 'l', '+', '/', ' ', 'é', '中'}) {
+            String bad = address.substring(0, 10) + c + address.substring(11);
+            assertFalse(Base58Check.isValidAddress(bad), "char " + c);
+            assertEquals(-1, Base58Check.tryDecode(bad, new byte[PAYLOAD_BYTES]), "char " + c);
+        }
+    }
+
+    @Test
+    void handlesLeadingOnes() {
+        // 版本号 0 编码为一个 '1'，hash 的前导零字节各再编码为一个 '1'
+        byte[] payload = payload(0x00, 5);
+        payload[1] = 0;
+        payload[2] = 0;
+        String address = Base58Check.bytesToBase58(payload);
+        assertTrue(address.startsWith("111"));
+        assertTrue(Base58Check.isValidAddress(address));
+        byte[] out = new byte[PAYLOAD_BYTES];
+        assertEquals(PAYLOAD_BYTES, Base58Check.tryDecode(address, out));
+        assertArrayEquals(payload, out);
+
+        // 多一个或少一个前导 '1' 都会改变解码长度
+        assertFalse(Base58Check.isValidAddress("1" + address));
+        assertFalse(Base58Check.isValidAddress(address.substring(1)));
+        // 不以 '1' 开头即不是版本号 0
+        assertFalse(Base58Check.isValidAddress("2" + address.substring(1)));
+    }
+
+    @Test
+    void rejectsBadLength() {
+        assertFalse(Base58Check.isValidAddress(null));
+        assertFalse(Base58Check.isValidAddress(""));
+        assertFalse(Base58Check.isValidAddress("1"));
+        assertFalse(Base58Check.isValidAddress(repeat('1', 24)));
+        String address = Base58Check.bytesToBase58(payload(0x00, 6));
+        assertFalse(Base58Check.isValidAddress(address + repeat('z', 36 - address.length())));
+        assertEquals(-1, Base58Check.tryDecode(null, new byte[PAYLOAD_BYTES]));
+        assertEquals(-1, Base58Check.tryDecode("", new byte[PAYLOAD_BYTES]));
+        // 输出空间不足
+        assertEquals(-1, Base58Check.tryDecode(address, new byte[PAYLOAD_BYTES - 1]));
+    }
+
+    @Test
+    @EnabledIfSystemProperty(named = "datacbc.benchmark", matches = "true")
+    void benchmarkAgainstBase58ToBytes() {
+        int count = 10_000;
+        int rounds = 20;
+        String[] valid = new String[count];
+        String[] invalid = new String[count];
+        for (int i = 0; i < count; i++) {
+            valid[i] = Base58Check.bytesToBase58(payload(0x00, i));
+            char last = valid[i].charAt(valid[i].length() - 1);
+            invalid[i] = valid[i].substring(0, valid[i].length() - 1) + (last == 'z' ? 'y' : 'z');
+        }
+        // 先各跑一轮预热
+        for (int round = 0; round <= rounds; round++) {
+            long t0 = System.nanoTime();
+            int a = countThrowing(valid) + countThrowing(invalid);
+            long t1 = System.nanoTime();
+            int b = countValid(valid) + countValid(invalid);
+            long t2 = System.nanoTime();
+            assertEquals(count, a);
+            assertEquals(count, b);
+            if (round == rounds) {
+                System.out.printf("base58ToBytes + try/catch: %d ns/op, isValidAddress: %d ns/op%n",
+                        (t1 - t0) / (2L * count), (t2 - t1) / (2L * count));
+            }
+        }
+    }
+
+    private static int countThrowing(String[] addresses) {
+        int valid = 0;
+        for (String address : addresses) {
+            try {
+                byte[] bytes = Base58Check.base58ToBytes(address);
+                if (bytes.length == PAYLOAD_BYTES && bytes[0] == 0) {
+                    valid++;
+                }
+            } catch (IllegalArgumentException e) {
+                // 非法地址
+            }
+        }
+        return valid;
+    }
+
+    private static int countValid(String[] addresses) {
+        int valid = 0;
+        for (String address : addresses) {
+            if (Base58Check.isValidAddress(address)) {
+                valid++;
+            }
+        }
+        return valid;
+    }
+
+    /**
+     * 版本号 + 20 字节随机 hash，首字节非零
+     */
+    private static byte[] payload(int version, long seed) {
+        byte[] payload = new byte[PAYLOAD_BYTES];
+        new Random(seed).nextBytes(payload);
+        payload[0] = (byte) version;
+        payload[1] |= 0x01;
+        return payload;
+    }
+
+    private static String repeat(char c, int count) {
+        char[] chars = new char[count];
+        Arrays.fill(chars, c);
+        return new String(chars);
+    }
+}
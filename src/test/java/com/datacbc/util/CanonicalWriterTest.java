@@ -0,0 +1,223 @@
+/*
+ * chenhx
+ * Copyright (C) 2013-2022 All Rights Reserved.
+ */
+package com.datacbc.util;
+
+import com.datacbc.wallet.Address;
+import org.apache.commons.codec.digest.DigestUtils;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.security.KeyPair;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * @author chenhx
+ * @version 0.0.1
+ * @className CanonicalWriterTest.java
+ * @date 2026-10-18 11:01
+ * @description 规范编码：与插入顺序无关、varint 等固定字节、数据ID和签名与 toBytes 后再处理的结果一致
+ */
+class CanonicalWriterTest {
+
+    @Test
+    void varintMatchesExpectedBytes() {
+        assertArrayEquals(hex("00"), bytes(w -> w.writeVarInt(0)));
+        assertArrayEquals(hex("01"), bytes(w -> w.writeVarInt(1)));
+        assertArrayEquals(hex("7f"), bytes(w -> w.writeVarInt(127)));
+        assertArrayEquals(hex("8001"), bytes(w -> w.writeVarInt(128)));
+        assertArrayEquals(hex("ac02"), bytes(w -> w.writeVarInt(300)));
+        assertArrayEquals(hex("808001"), bytes(w -> w.writeVarInt(16384)));
+        assertArrayEquals(hex("ffffffff07"), bytes(w -> w.writeVarInt(Integer.MAX_VALUE)));
+        // varlong 按无符号处理
+        assertArrayEquals(hex("ffffffffffffffffff01"), bytes(w -> w.writeVarLong(-1L)));
+        assertArrayEquals(hex("80808080808080808001"), bytes(w -> w.writeVarLong(Long.MIN_VALUE)));
+        assertThrows(IllegalArgumentException.class, () -> bytes(w -> w.writeVarInt(-1)));
+    }
+
+    @Test
+    void fixedWidthAndLengthPrefixedFields() {
+        assertArrayEquals(hex("01020304"), bytes(w -> w.writeInt(0x01020304)));
+        assertArrayEquals(hex("ffffffff"), bytes(w -> w.writeInt(-1)));
+        assertArrayEquals(hex("0102030405060708"), bytes(w -> w.writeLong(0x0102030405060708L)));
+        assertArrayEquals(hex("0100"), bytes(w -> {
+            w.writeBoolean(true);
+            w.writeBoolean(false);
+        }));
+        // UTF-8 字节数作为长度
+        assertArrayEquals(hex("0461c3a962"), bytes(w -> w.writeString("aéb")));
+        assertArrayEquals(hex("03010203"), bytes(w -> w.writeVarBytes(new byte[]{1, 2, 3})));
+        // 列表：数量 2，之后是两个带长度的字符串
+        assertArrayEquals(hex("02" + "026162" + "0163"), bytes(w -> w.writeList(Arrays.asList("ab", "c"), CanonicalWriter::writeString)));
+        assertThrows(IllegalArgumentException.class, () -> bytes(w -> w.writeHash(new byte[31])));
+        assertThrows(IllegalArgumentException.class, () -> bytes(w -> w.writeString(null)));
+    }
+
+    @Test
+    void mapsAndSetsIgnoreInsertionOrder() {
+        Random random = new Random(24L);
+        List<String> keys = new ArrayList<>();
+        for (int i = 0; i < 300; i++) {
+            keys.add("key-" + random.nextInt(1_000_000));
+        }
+        Payment expected = payment(keys, random);
+        byte[] expectedBytes = CanonicalWriter.toBytes(expected);
+        byte[] expectedId = CanonicalWriter.id(expected);
+        byte[] expectedSha512 = CanonicalWriter.sha512(expected);
+
+        for (int round = 0; round < 5; round++) {
+            List<String> shuffled = new ArrayList<>(keys);
+            Collections.shuffle(shuffled, random);
+            Payment reordered = new Payment(expected.memo, expected.amount, expected.payload, expected.address);
+            for (String key : shuffled) {
+                reordered.outputs.put(key, expected.outputs.get(key));
+                reordered.tags.add(key);
+            }
+            assertArrayEquals(expectedBytes, CanonicalWriter.toBytes(reordered));
+            assertArrayEquals(expectedId, CanonicalWriter.id(reordered));
+            assertArrayEquals(expectedSha512, CanonicalWriter.sha512(reordered));
+        }
+
+        // 有序集合直接按迭代顺序写出，结果与排序后相同
+        Map<String, Long> sortedMap = new TreeMap<>(expected.outputs);
+        Set<String> sortedSet = new TreeSet<>(expected.tags);
+        Map<String, Long> linkedMap = new LinkedHashMap<>();
+        Set<String> linkedSet = new LinkedHashSet<>();
+        List<String> reversed = new ArrayList<>(sortedSet);
+        Collections.reverse(reversed);
+        for (String key : reversed) {
+            linkedMap.put(key, expected.outputs.get(key));
+            linkedSet.add(key);
+        }
+        byte[] fromSorted = bytes(w -> {
+            w.writeMap(sortedMap, CanonicalWriter::writeString, CanonicalWriter::writeVarLong);
+            w.writeSet(sortedSet, CanonicalWriter::writeString);
+        });
+        byte[] fromLinked = bytes(w -> {
+            w.writeMap(linkedMap, CanonicalWriter::writeString, CanonicalWriter::writeVarLong);
+            w.writeSet(linkedSet, CanonicalWriter::writeString);
+        });
+        assertArrayEquals(fromSorted, fromLinked);
+
+        // 内容不同时字节不同
+        Payment changed = payment(keys, new Random(24L));
+        changed.outputs.put(keys.get(0), changed.outputs.get(keys.get(0)) + 1);
+        assertFalse(Arrays.equals(expectedBytes, CanonicalWriter.toBytes(changed)));
+    }
+
+    @Test
+    void digestSinksMatchBytes() throws Exception {
+        Payment payment = payment(Arrays.asList("a", "b", "c"), new Random(1L));
+        byte[] bytes = CanonicalWriter.toBytes(payment);
+        assertArrayEquals(ECDSAUtils.doubleSha256(bytes), CanonicalWriter.id(payment));
+        assertArrayEquals(DigestUtils.sha512(bytes), CanonicalWriter.sha512(payment));
+
+        MessageDigest digest = DigestUtils.getSha256Digest();
+        CanonicalWriter writer = CanonicalWriter.of(digest);
+        writer.writeCanonical(payment);
+        writer.finish();
+        assertArrayEquals(DigestUtils.sha256(bytes), digest.digest());
+
+        // 编码过程中计算嵌套对象的ID，线程内的写出器不能被打乱
+        Canonical nested = w -> {
+            w.writeHash(CanonicalWriter.id(payment));
+            w.writeCanonical(payment);
+        };
+        byte[] nestedBytes = CanonicalWriter.toBytes(nested);
+        assertArrayEquals(ECDSAUtils.doubleSha256(nestedBytes), CanonicalWriter.id(nested));
+    }
+
+    @Test
+    void canonicalSigningMatchesSigningBytes() throws Exception {
+        KeyPair keyPair = ECDSAUtils.newECKeyPair();
+        byte[] privateKey = keyPair.getPrivate().getEncoded();
+        byte[] publicKey = keyPair.getPublic().getEncoded();
+        Payment payment = payment(Arrays.asList("x", "y"), new Random(2L));
+        byte[] bytes = CanonicalWriter.toBytes(payment);
+
+        SignedDigest canonical = ECDSAUtils.signWithId(payment, privateKey);
+        SignedDigest overBytes = ECDSAUtils.signWithId(bytes, privateKey);
+        assertArrayEquals(overBytes.getId(), canonical.getId());
+        // 签名带随机数，互相验签
+        assertTrue(ECDSAUtils.verifyDigest(overBytes.getId(), publicKey, canonical.getSign()));
+        assertTrue(ECDSAUtils.verifyDigest(canonical.getId(), publicKey, overBytes.getSign()));
+
+        byte[] sign = ECDSAUtils.sign(payment, privateKey);
+        assertTrue(ECDSAUtils.verify(bytes, publicKey, sign));
+        assertTrue(ECDSAUtils.verify(payment, publicKey, ECDSAUtils.sign(bytes, privateKey)));
+        payment.outputs.put("z", 1L);
+        assertFalse(ECDSAUtils.verify(payment, publicKey, sign));
+    }
+
+    private static Payment payment(List<String> keys, Random random) {
+        // 超过缓冲区大小的字段直接写入目标
+        byte[] payload = new byte[2000];
+        random.nextBytes(payload);
+        byte[] pubkeyHash = new byte[20];
+        random.nextBytes(pubkeyHash);
+        Payment payment = new Payment("memo-é", random.nextLong(), payload, Address.fromPubkeyHash(pubkeyHash));
+        for (String key : keys) {
+            payment.outputs.put(key, random.nextLong() >>> 1);
+            payment.tags.add(key);
+        }
+        return payment;
+    }
+
+    private static byte[] bytes(Consumer<CanonicalWriter> write) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        CanonicalWriter writer = CanonicalWriter.of(out);
+        write.accept(writer);
+        writer.finish();
+        return out.toByteArray();
+    }
+
+    private static byte[] hex(String hex) {
+        return ByteUtils.hexStringToByte(hex);
+    }
+
+    private static final class Payment implements Canonical {
+        private final String memo;
+        private final long amount;
+        private final byte[] payload;
+        private final Address address;
+        private final Map<String, Long> outputs = new HashMap<>();
+        private final Set<String> tags = new HashSet<>();
+
+        Payment(String memo, long amount, byte[] payload, Address address) {
+            this.memo = memo;
+            this.amount = amount;
+            this.payload = payload;
+            this.address = address;
+        }
+
+        @Override
+        public void writeCanonical(CanonicalWriter writer) {
+            writer.writeString(memo);
+            writer.writeLong(amount);
+            writer.writeVarBytes(payload);
+            writer.writeCanonical(address);
+            writer.writeMap(outputs, CanonicalWriter::writeString, CanonicalWriter::writeVarLong);
+            writer.writeSet(tags, CanonicalWriter::writeString);
+        }
+    }
+}
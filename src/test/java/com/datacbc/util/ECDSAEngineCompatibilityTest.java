@@ -0,0 +1,138 @@
+/*
+ * chenhx
+ * Copyright (C) 2013-2022 All Rights Reserved.
+ */
+package com.datacbc.util;
+
+import org.apache.commons.codec.digest.DigestUtils;
+import org.bouncycastle.crypto.signers.StandardDSAEncoding;
+import org.bouncycastle.util.BigIntegers;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigInteger;
+import java.security.KeyPair;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * @author chenhx
+ * @version 0.0.1
+ * @className ECDSAEngineCompatibilityTest.java
+ * @date 2026-10-18 10:34
+ * @description bc 与 secp256k1 两个引擎的签名互相验签，包括高 s 签名和由可恢复签名恢复出的公钥
+ */
+class ECDSAEngineCompatibilityTest {
+
+    private static final int KEYS = 8;
+
+    private static final JcaECDSAEngine JCA = new JcaECDSAEngine();
+    private static final Secp256k1Engine SECP256K1 = new Secp256k1Engine();
+    private static final ECDSAEngine[] ENGINES = {JCA, SECP256K1};
+
+    private static final List<byte[]> privateKeys = new ArrayList<>();
+    private static final List<byte[]> publicKeys = new ArrayList<>();
+
+    @BeforeAll
+    static void generateKeys() throws Exception {
+        for (int i = 0; i < KEYS; i++) {
+            KeyPair keyPair = ECDSAUtils.newECKeyPair();
+            privateKeys.add(keyPair.getPrivate().getEncoded());
+            publicKeys.add(keyPair.getPublic().getEncoded());
+        }
+    }
+
+    @Test
+    void enginesVerifyEachOthersSignatures() throws Exception {
+        for (int i = 0; i < KEYS; i++) {
+            for (byte[] digest : digests(i)) {
+                for (ECDSAEngine signer : ENGINES) {
+                    byte[] sign = signer.signDigest(digest, privateKeys.get(i));
+                    for (ECDSAEngine verifier : ENGINES) {
+                        assertTrue(verifier.verifyDigest(digest, publicKeys.get(i), sign),
+                                signer.getName() + " -> " + verifier.getName());
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    void enginesAcceptBothLowAndHighS() throws Exception {
+        for (int i = 0; i < KEYS; i++) {
+            byte[] digest = digests(i)[0];
+            for (ECDSAEngine signer : ENGINES) {
+                BigInteger[] rs = decode(signer.signDigest(digest, privateKeys.get(i)));
+                byte[] flipped = encode(rs[0], Secp256k1.N.subtract(rs[1]));
+                for (ECDSAEngine verifier : ENGINES) {
+                    assertTrue(verifier.verifyDigest(digest, publicKeys.get(i), flipped),
+                            signer.getName() + " flipped s -> " + verifier.getName());
+                }
+            }
+        }
+    }
+
+    @Test
+    void enginesVerifyWithRecoveredPublicKey() throws Exception {
+        for (int i = 0; i < KEYS; i++) {
+            byte[] digest = digests(i)[1];
+            byte[] recoverable = ECDSAUtils.signDigestRecoverable(digest, privateKeys.get(i));
+            byte[] recovered = ECDSAUtils.recoverPublicKeyFromDigest(digest, recoverable);
+            assertArrayEquals(publicKeys.get(i), recovered);
+
+            // 可恢复签名的 r、s 转成 DER 后两个引擎都能验签，s 在低半区
+            BigInteger r = BigIntegers.fromUnsignedByteArray(recoverable, 0, 32);
+            BigInteger s = BigIntegers.fromUnsignedByteArray(recoverable, 32, 32);
+            assertTrue(s.compareTo(Secp256k1.HALF_N) <= 0);
+            List<byte[]> signs = new ArrayList<>();
+            signs.add(encode(r, s));
+            for (ECDSAEngine signer : ENGINES) {
+                signs.add(signer.signDigest(digest, privateKeys.get(i)));
+            }
+            for (byte[] sign : signs) {
+                for (ECDSAEngine verifier : ENGINES) {
+                    assertTrue(verifier.verifyDigest(digest, recovered, sign), verifier.getName());
+                }
+            }
+        }
+    }
+
+    @Test
+    void enginesRejectTamperedDigest() throws Exception {
+        for (int i = 0; i < KEYS; i++) {
+            for (byte[] digest : digests(i)) {
+                for (ECDSAEngine signer : ENGINES) {
+                    byte[] sign = signer.signDigest(digest, privateKeys.get(i));
+                    byte[] tampered = digest.clone();
+                    tampered[i % tampered.length] ^= 0x01;
+                    for (ECDSAEngine verifier : ENGINES) {
+                        assertFalse(verifier.verifyDigest(tampered, publicKeys.get(i), sign),
+                                signer.getName() + " -> " + verifier.getName());
+                        // 其他公钥同样不能通过
+                        assertFalse(verifier.verifyDigest(digest, publicKeys.get((i + 1) % KEYS), sign));
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * 32 字节（SHA-256）与 64 字节（SHA-512）两种摘要
+     */
+    private static byte[][] digests(int i) {
+        byte[] data = ("datacbc-engine-" + i).getBytes();
+        return new byte[][]{ECDSAUtils.doubleSha256(data), DigestUtils.sha512(data)};
+    }
+
+    private static BigInteger[] decode(byte[] sign) throws Exception {
+        return StandardDSAEncoding.INSTANCE.decode(Secp256k1.N, sign);
+    }
+
+    private static byte[] encode(BigInteger r, BigInteger s) throws Exception {
+        return StandardDSAEncoding.INSTANCE.encode(Secp256k1.N, r, s);
+    }
+}
@@ -0,0 +1,263 @@
+/*
+ * chenhx
+ * Copyright (C) 2013-2022 All Rights Reserved.
+ */
+package com.datacbc.util;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.apache.commons.codec.digest.DigestUtils;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.KeyPair;
+import java.security.SignatureException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * @author chenhx
+ * @version 0.0.1
+ * @className ECDSAUtilsTest.java
+ * @date 2026-10-18 10:56
+ * @description 批量验签：替换线程池时进行中的批量不受影响，只关闭 setVerifyParallelism 创建的线程池；可恢复签名恢复出签名者公钥；定长密钥和签名与 DER 格式互通；超过一个映射窗口的文件签名与字节数组签名互相验签
+ */
+class ECDSAUtilsTest {
+
+    /**
+     * 超过单任务上限 64，批量会提交到线程池
+     */
+    private static final int BATCH = 200;
+
+    private static final List<VerifyRequest> requests = new ArrayList<>();
+    private static final BitSet expected = new BitSet();
+    private static byte[] privateKey;
+    private static byte[] publicKey;
+
+    @TempDir
+    Path dir;
+
+    @BeforeAll
+    static void signBatch() throws Exception {
+        KeyPair keyPair = ECDSAUtils.newECKeyPair();
+        privateKey = keyPair.getPrivate().getEncoded();
+        publicKey = keyPair.getPublic().getEncoded();
+        for (int i = 0; i < BATCH; i++) {
+            byte[] data = ("datacbc-batch-" + i).getBytes();
+            byte[] sign = ECDSAUtils.sign(data, privateKey);
+            if (i % 7 == 3) {
+                // 部分请求换成其他数据，应验签失败
+                data = ("datacbc-tampered-" + i).getBytes();
+            } else {
+                expected.set(i);
+            }
+            requests.add(new VerifyRequest(data, publicKey, sign));
+        }
+    }
+
+    @AfterEach
+    void restoreCommonPool() {
+        ECDSAUtils.setVerifyPool(ForkJoinPool.commonPool());
+    }
+
+    @Test
+    void verifyAllRejectsNullPool() {
+        assertThrows(IllegalArgumentException.class, () -> ECDSAUtils.verifyAll(requests.subList(0, 1), null));
+        assertThrows(IllegalArgumentException.class, () -> ECDSAUtils.verifyAll(Collections.emptyList(), null));
+        assertThrows(IllegalArgumentException.class, () -> ECDSAUtils.verifyAll(requests, null));
+    }
+
+    @Test
+    void swapWaitsForRunningBatch() throws Exception {
+        ECDSAUtils.setVerifyParallelism(2);
+        ForkJoinPool owned = ECDSAUtils.getVerifyPool();
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch proceed = new CountDownLatch(1);
+        List<VerifyRequest> batch = new ArrayList<>(requests);
+        VerifyRequest first = batch.get(0);
+        // 第一条请求被读取时阻塞，保证替换发生在批量执行过程中
+        batch.set(0, new VerifyRequest(first.getData(), first.getPublicKey(), first.getSign()) {
+            @Override
+            public byte[] getData() {
+                started.countDown();
+                try {
+                    proceed.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return super.getData();
+            }
+        });
+
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        ForkJoinPool callerPool = new ForkJoinPool(2);
+        try {
+            Future<BitSet> running = executor.submit(() -> ECDSAUtils.verifyAll(batch));
+            assertTrue(started.await(30, TimeUnit.SECONDS));
+
+            ECDSAUtils.setVerifyPool(callerPool);
+            // 批量还在使用原线程池，不能关闭
+            assertFalse(owned.isShutdown());
+            proceed.countDown();
+            assertEquals(expected, running.get(30, TimeUnit.SECONDS));
+            // 最后一个使用者结束后关闭自己创建的线程池
+            assertTrue(owned.isShutdown());
+
+            // 调用方传入的线程池被替换后不关闭
+            ECDSAUtils.setVerifyParallelism(2);
+            assertFalse(callerPool.isShutdown());
+            assertEquals(expected, ECDSAUtils.verifyAll(requests, callerPool));
+        } finally {
+            proceed.countDown();
+            executor.shutdownNow();
+            callerPool.shutdown();
+        }
+    }
+
+    @Test
+    void concurrentSwapsKeepBatchesValid() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        AtomicBoolean stop = new AtomicBoolean();
+        try {
+            Future<?> swapper = executor.submit(() -> {
+                while (!stop.get()) {
+                    ECDSAUtils.setVerifyParallelism(2);
+                }
+            });
+            Future<?> verifier = executor.submit(() -> {
+                for (int i = 0; i < 20; i++) {
+                    assertEquals(expected, ECDSAUtils.verifyAll(requests));
+                }
+            });
+            verifier.get(120, TimeUnit.SECONDS);
+            stop.set(true);
+            swapper.get(30, TimeUnit.SECONDS);
+        } finally {
+            stop.set(true);
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void recoverPublicKeyReturnsSigner() throws Exception {
+        for (int i = 0; i < 20; i++) {
+            KeyPair keyPair = ECDSAUtils.newECKeyPair();
+            byte[] signerPrivateKey = keyPair.getPrivate().getEncoded();
+            byte[] signerPublicKey = keyPair.getPublic().getEncoded();
+            byte[] data = ("datacbc-recover-" + i).getBytes();
+
+            byte[] sign = ECDSAUtils.signRecoverable(data, signerPrivateKey);
+            assertEquals(65, sign.length);
+            assertTrue(sign[64] >= 0 && sign[64] <= 3);
+            // 恢复出的公钥与 X509 编码的签名者公钥逐字节相同
+            assertArrayEquals(signerPublicKey, ECDSAUtils.recoverPublicKey(data, sign));
+            // r、s 部分是普通签名，可以用签名者公钥验签
+            byte[] der = ECDSACodec.fromCompactSignature(Arrays.copyOf(sign, 64));
+            assertTrue(ECDSAUtils.verify(data, signerPublicKey, der));
+
+            byte[] digest = ECDSAUtils.doubleSha256(data);
+            byte[] digestSign = ECDSAUtils.signDigestRecoverable(digest, signerPrivateKey);
+            assertArrayEquals(signerPublicKey, ECDSAUtils.recoverPublicKeyFromDigest(digest, digestSign));
+
+            // 数据不同时恢复出的不是签名者公钥
+            byte[] other = ("datacbc-other-" + i).getBytes();
+            assertFalse(Arrays.equals(signerPublicKey, ECDSAUtils.recoverPublicKey(other, sign)));
+        }
+    }
+
+    @Test
+    void recoverPublicKeyRejectsMalformedSignature() throws Exception {
+        byte[] data = "datacbc-recover".getBytes();
+        byte[] sign = ECDSAUtils.signRecoverable(data, privateKey);
+        assertThrows(SignatureException.class, () -> ECDSAUtils.recoverPublicKey(data, Arrays.copyOf(sign, 64)));
+        byte[] badRecId = sign.clone();
+        badRecId[64] = 4;
+        assertThrows(SignatureException.class, () -> ECDSAUtils.recoverPublicKey(data, badRecId));
+        byte[] zeroR = sign.clone();
+        Arrays.fill(zeroR, 0, 32, (byte) 0);
+        assertThrows(SignatureException.class, () -> ECDSAUtils.recoverPublicKey(data, zeroR));
+        // 换一个 recId 恢复出其他公钥
+        byte[] flipped = sign.clone();
+        flipped[64] ^= 1;
+        assertFalse(Arrays.equals(publicKey, ECDSAUtils.recoverPublicKey(data, flipped)));
+    }
+
+    @Test
+    void compactSignaturesInteroperateWithDer() throws Exception {
+        byte[] rawPrivateKey = ECDSACodec.toRawPrivateKey(privateKey);
+        byte[] compressedPublicKey = ECDSACodec.toCompressedPublicKey(publicKey);
+        assertEquals(ECDSACodec.RAW_PRIVATE_KEY_LENGTH, rawPrivateKey.length);
+        assertEquals(ECDSACodec.COMPRESSED_PUBLIC_KEY_LENGTH, compressedPublicKey.length);
+        // 定长编码转回后与原编码一致
+        assertArrayEquals(privateKey, ECDSACodec.fromRawPrivateKey(rawPrivateKey));
+        assertArrayEquals(publicKey, ECDSACodec.fromCompressedPublicKey(compressedPublicKey));
+        assertArrayEquals(publicKey, ECDSACodec.publicKeyOfRawPrivateKey(rawPrivateKey));
+
+        for (int i = 0; i < 20; i++) {
+            byte[] data = ("datacbc-compact-" + i).getBytes();
+            byte[] compact = ECDSAUtils.signCompact(data, rawPrivateKey);
+            assertEquals(ECDSACodec.COMPACT_SIGNATURE_LENGTH, compact.length);
+            assertTrue(ECDSAUtils.verifyCompact(data, compressedPublicKey, compact));
+            // 定长签名转 DER 后用 X509 公钥验签
+            assertTrue(ECDSAUtils.verify(data, publicKey, ECDSACodec.fromCompactSignature(compact)));
+
+            // DER 签名转定长后用压缩公钥验签，再转回 DER 与原签名一致
+            byte[] der = ECDSAUtils.sign(data, privateKey);
+            byte[] fromDer = ECDSACodec.toCompactSignature(der);
+            assertTrue(ECDSAUtils.verifyCompact(data, compressedPublicKey, fromDer));
+            assertArrayEquals(der, ECDSACodec.fromCompactSignature(fromDer));
+
+            assertFalse(ECDSAUtils.verifyCompact(("datacbc-other-" + i).getBytes(), compressedPublicKey, compact));
+        }
+    }
+
+    @Test
+    void fileSignaturesSpanningMappedWindowsMatchBytes() throws Exception {
+        // 超过一个 64 MiB 映射窗口，最后一段不足一个窗口
+        byte[] data = new byte[64 * 1024 * 1024 + 4097];
+        new Random(5L).nextBytes(data);
+        Path file = dir.resolve("large.bin");
+        Files.write(file, data);
+        assertArrayEquals(DigestUtils.sha512(data), ECDSAUtils.sha512(file));
+
+        byte[] fileSign = ECDSAUtils.sign(file, privateKey);
+        assertTrue(ECDSAUtils.verify(data, publicKey, fileSign));
+        assertTrue(ECDSAUtils.verify(file, publicKey, fileSign));
+        byte[] bytesSign = ECDSAUtils.sign(data, privateKey);
+        assertTrue(ECDSAUtils.verify(file, publicKey, bytesSign));
+        try (InputStream in = new ByteArrayInputStream(data)) {
+            assertTrue(ECDSAUtils.verify(in, publicKey, fileSign));
+        }
+
+        // 改动第二个窗口中的一个字节
+        data[data.length - 1] ^= 1;
+        Files.write(file, data);
+        assertFalse(ECDSAUtils.verify(file, publicKey, fileSign));
+        assertFalse(ECDSAUtils.verify(file, publicKey, bytesSign));
+
+        Path empty = dir.resolve("empty.bin");
+        Files.write(empty, new byte[0]);
+        assertTrue(ECDSAUtils.verify(new byte[0], publicKey, ECDSAUtils.sign(empty, privateKey)));
+    }
+}
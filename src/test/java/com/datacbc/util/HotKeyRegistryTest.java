@@ -0,0 +1,54 @@
+/*
+ * chenhx
+ * Copyright (C) 2013-2022 All Rights Reserved.
+ */
+package com.datacbc.util;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.security.KeyPair;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * @author chenhx
+ * @version 0.0.1
+ * @className HotKeyRegistryTest.java
+ * @date 2026-10-18 10:35
+ * @description 默认 bc 引擎下热点公钥的验签
+ */
+class HotKeyRegistryTest {
+
+    @AfterEach
+    void clear() {
+        HotKeyRegistry.getDefault().clear();
+    }
+
+    @Test
+    void defaultEngineVerifiesWithHotKey() throws Exception {
+        assertEquals(JcaECDSAEngine.NAME, ECDSAUtils.getEngine().getName());
+        KeyPair keyPair = ECDSAUtils.newECKeyPair();
+        byte[] privateKey = keyPair.getPrivate().getEncoded();
+        byte[] publicKey = keyPair.getPublic().getEncoded();
+        byte[] data = "datacbc-hot-key".getBytes(StandardCharsets.UTF_8);
+        byte[] sign = ECDSAUtils.sign(data, privateKey);
+
+        HotKeyRegistry.getDefault().register(publicKey);
+        assertTrue(HotKeyRegistry.getDefault().isHot(publicKey));
+        assertTrue(ECDSAUtils.verify(data, publicKey, sign));
+        assertTrue(ECDSAUtils.verify(data, publicKey, ECDSASigner.of(privateKey).sign(data)));
+        byte[] tampered = data.clone();
+        tampered[0] ^= 0x01;
+        assertFalse(ECDSAUtils.verify(tampered, publicKey, sign));
+
+        // 取消登记后走 JCA，结果相同
+        HotKeyRegistry.getDefault().unregister(publicKey);
+        assertFalse(HotKeyRegistry.getDefault().isHot(publicKey));
+        assertTrue(ECDSAUtils.verify(data, publicKey, sign));
+        assertFalse(ECDSAUtils.verify(tampered, publicKey, sign));
+    }
+}
@@ -0,0 +1,470 @@
+/*
+ * chenhx
+ * Copyright (C) 2013-2022 All Rights Reserved.
+ */
+package com.datacbc.util;
+
+import com.datacbc.wallet.Address;
+import com.datacbc.wallet.Wallet;
+import com.esotericsoftware.kryo.Kryo;
+import com.esotericsoftware.kryo.KryoException;
+import com.esotericsoftware.kryo.Serializer;
+import com.esotericsoftware.kryo.io.Input;
+import com.esotericsoftware.kryo.io.KryoBufferOverflowException;
+import com.esotericsoftware.kryo.io.Output;
+import com.esotericsoftware.kryo.util.Pool;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * @author chenhx
+ * @version 0.0.1
+ * @className SerializeUtilsTest.java
+ * @date 2026-10-18 10:39
+ * @description Kryo 序列化：与引入固定编号注册之前写出的数据兼容，自定义注册，无环序列化，ByteBuffer 和输出流读写，池中缓冲区回收，流式读写
+ */
+class SerializeUtilsTest {
+
+    /**
+     * 以下字节由调整注册之前的 SerializeUtils 写出
+     */
+    private static final String BASELINE_DOUBLE = "0a0000000000002940";
+    private static final String BASELINE_MAP = "0b01020c01cfbeadc40a010761006d006f0075006e0074000a0000000000002940";
+    private static final String BASELINE_FLOAT = "0f0000c03f";
+    private static final String BASELINE_BOOLEAN = "1001";
+    private static final String BASELINE_LONG = "090e";
+    /**
+     * 未注册时按类全名写出的钱包
+     */
+    private static final String BASELINE_WALLET = "0100636f6d2e646174616362632e77616c6c65742e57616c6c65f40101910130818d02010030"
+            + "1006072a8648ce3d020106052b8104000a047630740201010420d26597937e248f4aa1a1d25965d5b8de795ab9520ed7fd16c9d498"
+            + "d077f0a70ba00706052b8104000aa14403420004b508632245ce061f39062c1bae685296f886d51aa2f076b3af955f0122e9ff02fa"
+            + "ab0cb1b8a633e30d267955424746252a5701a04c528bc8052026bcab293a0b01593056301006072a8648ce3d020106052b8104000a"
+            + "03420004b508632245ce061f39062c1bae685296f886d51aa2f076b3af955f0122e9ff02faab0cb1b8a633e30d267955424746252a"
+            + "5701a04c528bc8052026bcab293a0b";
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void readsBaselinePrimitives() {
+        assertEquals(12.5d, SerializeUtils.deserialize(hex(BASELINE_DOUBLE)));
+        assertEquals(1.5f, SerializeUtils.deserialize(hex(BASELINE_FLOAT)));
+        assertEquals(Boolean.TRUE, SerializeUtils.deserialize(hex(BASELINE_BOOLEAN)));
+        assertEquals(7L, SerializeUtils.deserialize(hex(BASELINE_LONG)));
+        // 写出的字节也与之前一致
+        assertArrayEquals(hex(BASELINE_DOUBLE), SerializeUtils.serialize(12.5d));
+        assertArrayEquals(hex(BASELINE_FLOAT), SerializeUtils.serialize(1.5f));
+        assertArrayEquals(hex(BASELINE_BOOLEAN), SerializeUtils.serialize(true));
+        assertArrayEquals(hex(BASELINE_LONG), SerializeUtils.serialize(7L));
+    }
+
+    @Test
+    void readsBaselineMap() {
+        Map<String, Object> expected = new HashMap<>();
+        expected.put("amount", 12.5d);
+        assertEquals(expected, SerializeUtils.deserialize(hex(BASELINE_MAP)));
+        assertArrayEquals(hex(BASELINE_MAP), SerializeUtils.serialize(expected));
+    }
+
+    @Test
+    void readsBaselineWallet() {
+        Wallet wallet = (Wallet) SerializeUtils.deserialize(hex(BASELINE_WALLET));
+        Wallet copy = SerializeUtils.deserialize(SerializeUtils.serialize(wallet, Wallet.class), Wallet.class);
+        assertArrayEquals(wallet.getPrivateKey(), copy.getPrivateKey());
+        assertArrayEquals(wallet.getPublicKey(), copy.getPublicKey());
+        Wallet untyped = (Wallet) SerializeUtils.deserialize(SerializeUtils.serialize(wallet));
+        assertArrayEquals(wallet.getPrivateKey(), untyped.getPrivateKey());
+    }
+
+    @Test
+    void registerRejectsBuiltinIds() {
+        // 4-8 为 Kryo 内置的 byte、char、short、long、double
+        for (int id = 4; id <= 8; id++) {
+            int builtin = id;
+            assertThrows(IllegalArgumentException.class, () -> SerializeUtils.register(Point.class, new PointSerializer(), builtin));
+        }
+        assertThrows(IllegalArgumentException.class, () -> SerializeUtils.register(Point.class, new PointSerializer(), 18));
+    }
+
+    @Test
+    void registeredTypeUsesFixedId() {
+        // 注册前先用一次，池中的 Kryo 注册不完整，归还时应被丢弃
+        SerializeUtils.serialize(12.5d);
+        SerializeUtils.register(Point.class, new PointSerializer(), 120);
+        byte[] bytes = SerializeUtils.serialize(new Point(3, 4));
+        // 编号写为 id + 2 的 varint，之后是新对象的引用标记和两个 varint 坐标
+        assertArrayEquals(new byte[]{122, 1, 3, 4}, bytes);
+        Point point = (Point) SerializeUtils.deserialize(bytes);
+        assertEquals(3, point.x);
+        assertEquals(4, point.y);
+    }
+
+    @Test
+    void acyclicRejectsCycle() {
+        // 对象图检查只在开启断言时执行，surefire 默认开启
+        assumeTrue(SerializeUtils.class.desiredAssertionStatus());
+        List<Object> list = new ArrayList<>();
+        list.add("head");
+        list.add(list);
+        assertThrows(KryoException.class, () -> SerializeUtils.serializeAcyclic(list));
+    }
+
+    @Test
+    void acyclicRejectsSharedMutable() {
+        assumeTrue(SerializeUtils.class.desiredAssertionStatus());
+        Map<String, Object> shared = new HashMap<>();
+        shared.put("amount", 12.5d);
+        List<Object> list = new ArrayList<>();
+        list.add(shared);
+        list.add(shared);
+        assertThrows(KryoException.class, () -> SerializeUtils.serializeAcyclic(list));
+        assertThrows(KryoException.class, () -> SerializeUtils.serializeAcyclic(list, ArrayList.class));
+    }
+
+    @Test
+    void acyclicRoundTripsTree() {
+        Address address = Address.ofPublicKey(Wallet.generate().getPublicKey());
+        Map<String, Object> output = new HashMap<>();
+        output.put("address", address);
+        output.put("amount", 12.5d);
+        List<Object> outputs = new ArrayList<>();
+        outputs.add(output);
+        outputs.add(new HashMap<>(output));
+        // 同一个字符串出现多次，不可变对象共享不影响结果
+        outputs.add("memo");
+        outputs.add("memo");
+
+        Object copy = SerializeUtils.deserializeAcyclic(SerializeUtils.serializeAcyclic(outputs));
+        assertEquals(outputs, copy);
+        assertEquals(outputs, SerializeUtils.deserializeAcyclic(SerializeUtils.serializeAcyclic(outputs, ArrayList.class), ArrayList.class));
+    }
+
+    @Test
+    void serializeToByteBufferRoundTrips() {
+        Address address = addressOf(42);
+        Map<String, Object> map = new HashMap<>();
+        map.put("amount", 12L);
+        map.put("address", address);
+        for (ByteBuffer buffer : Arrays.asList(ByteBuffer.allocate(4096), ByteBuffer.allocateDirect(4096))) {
+            buffer.position(3);
+            int first = SerializeUtils.serialize(map, buffer);
+            // 与写入字节数组的结果相同
+            assertEquals(SerializeUtils.serialize(map).length, first);
+            assertEquals(3 + first, buffer.position());
+            int second = SerializeUtils.serialize(address, buffer);
+            int third = SerializeUtils.serialize(null, buffer);
+            assertEquals(3 + first + second + third, buffer.position());
+
+            buffer.flip().position(3);
+            assertEquals(map, SerializeUtils.deserialize(buffer));
+            assertEquals(3 + first, buffer.position());
+            assertEquals(address, SerializeUtils.deserialize(buffer));
+            assertEquals(null, SerializeUtils.deserialize(buffer));
+            assertEquals(buffer.limit(), buffer.position());
+        }
+
+        // 指定类型
+        ByteBuffer typed = ByteBuffer.allocateDirect(64);
+        byte[] expected = SerializeUtils.serialize(address, Address.class);
+        typed.put(expected).flip();
+        assertEquals(address, SerializeUtils.deserialize(typed, Address.class));
+        assertEquals(expected.length, typed.position());
+
+        // 空间不足时 position 不变
+        ByteBuffer small = ByteBuffer.allocate(8);
+        small.position(2);
+        assertThrows(KryoBufferOverflowException.class, () -> SerializeUtils.serialize(map, small));
+        assertEquals(2, small.position());
+        // 失败后池中的对象仍可正常使用
+        ByteBuffer buffer = ByteBuffer.allocate(4096);
+        SerializeUtils.serialize(map, buffer);
+        buffer.flip();
+        assertEquals(map, SerializeUtils.deserialize(buffer));
+    }
+
+    @Test
+    void serializeToOutputStreamRoundTrips() {
+        Address address = addressOf(7);
+        List<Object> list = new ArrayList<>(Arrays.asList("a", 1L, address));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        SerializeUtils.serialize(list, out);
+        byte[] first = out.toByteArray();
+        assertArrayEquals(SerializeUtils.serialize(list), first);
+        SerializeUtils.serialize(address, out);
+
+        // 对象比池中的缓冲区大时分段写入流
+        byte[] large = new byte[3 * 1024 * 1024];
+        new Random(21L).nextBytes(large);
+        SerializeUtils.serialize(large, out);
+
+        ByteBuffer buffer = ByteBuffer.wrap(out.toByteArray());
+        assertEquals(list, SerializeUtils.deserialize(buffer));
+        assertEquals(first.length, buffer.position());
+        assertEquals(address, SerializeUtils.deserialize(buffer));
+        assertArrayEquals(large, (byte[]) SerializeUtils.deserialize(buffer));
+        assertEquals(buffer.limit(), buffer.position());
+    }
+
+    @Test
+    void oversizedOutputBufferIsShrunkBeforeReuse() throws Exception {
+        // 超过 MAX_POOLED_BUFFER_SIZE（1 MiB），Output 的缓冲区被撑大
+        byte[] large = new byte[2 * 1024 * 1024 + 17];
+        new Random(1L).nextBytes(large);
+        byte[] bytes = SerializeUtils.serialize(large);
+        assertArrayEquals(large, (byte[]) SerializeUtils.deserialize(bytes));
+        byte[] typedBytes = SerializeUtils.serialize(large, byte[].class);
+        assertArrayEquals(large, SerializeUtils.deserialize(typedBytes, byte[].class));
+
+        assertPooledOutputsWithin(1024 * 1024);
+
+        // 换回小缓冲区后，池中的 Output 写小对象和大对象都正确
+        Address address = addressOf(3);
+        assertEquals(address, SerializeUtils.deserialize(SerializeUtils.serialize(address)));
+        assertArrayEquals(bytes, SerializeUtils.serialize(large));
+        assertEquals(address, SerializeUtils.deserialize(SerializeUtils.serialize(address)));
+        assertPooledOutputsWithin(1024 * 1024);
+    }
+
+    /**
+     * 取出池中所有空闲的 Output 检查缓冲区大小，检查完再放回
+     */
+    @SuppressWarnings("unchecked")
+    private static void assertPooledOutputsWithin(int maxBufferSize) throws ReflectiveOperationException {
+        Pool<Output> outputPool = (Pool<Output>) pool("outputPool");
+        int free = outputPool.getFree();
+        assertTrue(free > 0);
+        List<Output> outputs = new ArrayList<>();
+        for (int i = 0; i < free; i++) {
+            outputs.add(outputPool.obtain());
+        }
+        try {
+            for (Output output : outputs) {
+                assertTrue(output.getBuffer().length <= maxBufferSize, "buffer " + output.getBuffer().length);
+                assertEquals(0, output.position());
+            }
+        } finally {
+            outputs.forEach(outputPool::free);
+        }
+    }
+
+    @Test
+    void writeAllReadAllRoundTripsThroughStream() {
+        List<Object> items = mixedItems(5000);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        assertEquals(items.size(), SerializeUtils.writeAll(items.iterator(), out));
+        List<Object> read;
+        try (Stream<Object> stream = SerializeUtils.readAll(new ByteArrayInputStream(out.toByteArray()))) {
+            read = stream.collect(Collectors.toList());
+        }
+        assertEquals(items, read);
+
+        // Stream 重载与 Iterator 重载写出相同的字节
+        ByteArrayOutputStream fromStream = new ByteArrayOutputStream();
+        SerializeUtils.writeAll(items.stream(), fromStream);
+        assertArrayEquals(out.toByteArray(), fromStream.toByteArray());
+
+        // 同一类型的记录不写类型信息，可以包含 null
+        List<Address> addresses = addresses(3000);
+        addresses.set(7, null);
+        ByteArrayOutputStream typed = new ByteArrayOutputStream();
+        assertEquals(addresses.size(), SerializeUtils.writeAll(addresses.iterator(), Address.class, typed));
+        try (Stream<Address> stream = SerializeUtils.readAll(new ByteArrayInputStream(typed.toByteArray()), Address.class)) {
+            assertEquals(addresses, stream.collect(Collectors.toList()));
+        }
+        assertTrue(typed.size() < out.size());
+    }
+
+    @Test
+    void writeAllReadAllRoundTripsThroughFileChannel() throws IOException {
+        List<Object> items = mixedItems(5000);
+        Path untyped = dir.resolve("untyped.bin");
+        try (FileChannel channel = FileChannel.open(untyped, StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+            assertEquals(items.size(), SerializeUtils.writeAll(items.iterator(), channel));
+        }
+        try (Stream<Object> stream = SerializeUtils.readAll(untyped, null)) {
+            assertEquals(items, stream.collect(Collectors.toList()));
+        }
+        try (FileChannel channel = FileChannel.open(untyped, StandardOpenOption.READ);
+             Stream<Object> stream = SerializeUtils.readAll(channel)) {
+            assertEquals(items, stream.collect(Collectors.toList()));
+        }
+
+        List<Address> addresses = addresses(3000);
+        Path typed = dir.resolve("typed.bin");
+        try (FileChannel channel = FileChannel.open(typed, StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+            assertEquals(addresses.size(), SerializeUtils.writeAll(addresses.iterator(), Address.class, channel));
+        }
+        try (Stream<Address> stream = SerializeUtils.readAll(typed, Address.class)) {
+            assertEquals(addresses, stream.collect(Collectors.toList()));
+        }
+    }
+
+    @Test
+    void readAllRejectsTruncatedOrMismatchedRecords() {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        SerializeUtils.writeAll(mixedItems(100).iterator(), out);
+        byte[] bytes = out.toByteArray();
+        byte[] truncated = Arrays.copyOf(bytes, bytes.length - 3);
+        assertThrows(KryoException.class, () -> readList(truncated));
+
+        // 单条记录：1 字节长度 + 内容，长度改大或改小都与实际读取的字节数不一致
+        ByteArrayOutputStream single = new ByteArrayOutputStream();
+        SerializeUtils.writeAll(Arrays.asList("hello", "world").iterator(), single);
+        byte[] longer = single.toByteArray();
+        longer[0]++;
+        assertThrows(KryoException.class, () -> readList(longer));
+        byte[] shorter = single.toByteArray();
+        shorter[0]--;
+        assertThrows(KryoException.class, () -> readList(shorter));
+        assertEquals(Arrays.asList("hello", "world"), readList(single.toByteArray()));
+    }
+
+    @Test
+    void closingStreamEarlyReleasesKryoAndFile() throws Exception {
+        Path file = dir.resolve("early.bin");
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+            SerializeUtils.writeAll(mixedItems(1000).iterator(), channel);
+        }
+        Pool<?> kryoPool = pool("kryoPool");
+        // 先用一次，保证池中有空闲的 Kryo
+        SerializeUtils.serialize("warm-up");
+        int free = kryoPool.getFree();
+        assertTrue(free > 0);
+
+        Stream<Object> stream = SerializeUtils.readAll(file, null);
+        assertEquals(1, openDescriptors(file));
+        Iterator<Object> iterator = stream.iterator();
+        iterator.next();
+        iterator.next();
+        // 读取过程中占用一个 Kryo
+        assertEquals(free - 1, kryoPool.getFree());
+        stream.close();
+        assertEquals(free, kryoPool.getFree());
+        assertEquals(0, openDescriptors(file));
+
+        // 未读取就关闭
+        Stream<Object> unread = SerializeUtils.readAll(file, null);
+        unread.close();
+        assertEquals(free, kryoPool.getFree());
+        assertEquals(0, openDescriptors(file));
+    }
+
+    private static List<Object> readList(byte[] bytes) {
+        try (Stream<Object> stream = SerializeUtils.readAll(new ByteArrayInputStream(bytes))) {
+            return stream.collect(Collectors.toList());
+        }
+    }
+
+    private static List<Object> mixedItems(int count) {
+        return IntStream.range(0, count).mapToObj(i -> {
+            switch (i % 5) {
+                case 0:
+                    return "item-" + i;
+                case 1:
+                    return (long) i;
+                case 2:
+                    Map<String, Object> map = new HashMap<>();
+                    map.put("index", i);
+                    map.put("amount", i * 0.5d);
+                    return map;
+                case 3:
+                    return i % 10 == 3 ? null : new ArrayList<>(Arrays.asList(i, "x"));
+                default:
+                    return addressOf(i);
+            }
+        }).collect(Collectors.toList());
+    }
+
+    private static List<Address> addresses(int count) {
+        return IntStream.range(0, count).mapToObj(SerializeUtilsTest::addressOf).collect(Collectors.toList());
+    }
+
+    private static Address addressOf(int i) {
+        byte[] pubkeyHash = new byte[20];
+        pubkeyHash[0] = (byte) (i >>> 8);
+        pubkeyHash[19] = (byte) i;
+        return Address.fromPubkeyHash(pubkeyHash);
+    }
+
+    /**
+     * SerializeUtils 内部的对象池，用于检查 Kryo、Output 是否归还
+     */
+    private static Pool<?> pool(String name) throws ReflectiveOperationException {
+        Field field = SerializeUtils.class.getDeclaredField(name);
+        field.setAccessible(true);
+        return (Pool<?>) field.get(null);
+    }
+
+    /**
+     * 当前进程打开该文件的描述符数，只在 Linux 上可用
+     */
+    private static long openDescriptors(Path file) throws IOException {
+        Path fds = Paths.get("/proc/self/fd");
+        assumeTrue(Files.isDirectory(fds));
+        Path target = file.toRealPath();
+        try (Stream<Path> links = Files.list(fds)) {
+            return links.filter(link -> {
+                try {
+                    return Files.readSymbolicLink(link).equals(target);
+                } catch (IOException e) {
+                    return false;
+                }
+            }).count();
+        }
+    }
+
+    private static byte[] hex(String hex) {
+        return ByteUtils.hexStringToByte(hex);
+    }
+
+    private static final class Point {
+        private final int x;
+        private final int y;
+
+        Point(int x, int y) {
+            this.x = x;
+            this.y = y;
+        }
+    }
+
+    private static final class PointSerializer extends Serializer<Point> {
+        @Override
+        public void write(Kryo kryo, Output output, Point point) {
+            output.writeVarInt(point.x, true);
+            output.writeVarInt(point.y, true);
+        }
+
+        @Override
+        public Point read(Kryo kryo, Input input, Class<? extends Point> type) {
+            return new Point(input.readVarInt(true), input.readVarInt(true));
+        }
+    }
+}
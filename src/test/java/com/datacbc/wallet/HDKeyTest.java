@@ -0,0 +1,78 @@
+/*
+ * chenhx
+ * Copyright (C) 2013-2022 All Rights Reserved.
+ */
+package com.datacbc.wallet;
+
+import com.datacbc.util.ByteUtils;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * @author chenhx
+ * @version 0.0.1
+ * @className HDKeyTest.java
+ * @date 2026-10-18 10:37
+ * @description 批量推导与逐个推导结果一致，包括强化子密钥
+ */
+class HDKeyTest {
+
+    /**
+     * BIP32 测试向量 1 的种子
+     */
+    private static final HDKey MASTER = HDKey.fromSeed(ByteUtils.hexStringToByte("000102030405060708090a0b0c0d0e0f"));
+
+    @Test
+    void deriveChildrenMatchesDeriveChildForHardenedRange() {
+        // 跨过一个批次（64 个）
+        int count = 70;
+        List<HDKey> children = MASTER.deriveChildren(HDKey.HARDENED_BIT, count);
+        assertEquals(count, children.size());
+        for (int i = 0; i < count; i++) {
+            HDKey child = children.get(i);
+            assertTrue(child.isHardened());
+            assertSameKey(MASTER.deriveChild(HDKey.HARDENED_BIT + i), child);
+        }
+        // BIP32 测试向量 1：m/0H
+        assertEquals("035a784662a4a20a65bf6aab9ae98a6c068a81c52e4b032c0fb5400c706cfccc56",
+                ByteUtils.bytesToHexString(children.get(0).getCompressedPublicKey()).toLowerCase());
+    }
+
+    @Test
+    void deriveChildrenMatchesDeriveChildForNormalRange() {
+        int count = 70;
+        List<HDKey> children = MASTER.deriveChildren(5, count);
+        for (int i = 0; i < count; i++) {
+            assertSameKey(MASTER.deriveChild(5 + i), children.get(i));
+        }
+        // 只有公钥时同样可以批量推导普通子密钥
+        HDKey neutered = MASTER.neuter();
+        List<HDKey> publicChildren = neutered.deriveChildren(5, count);
+        for (int i = 0; i < count; i++) {
+            assertArrayEquals(children.get(i).getCompressedPublicKey(), publicChildren.get(i).getCompressedPublicKey());
+        }
+    }
+
+    @Test
+    void deriveChildrenRejectsRangeCrossingBoundary() {
+        assertThrows(IllegalArgumentException.class, () -> MASTER.deriveChildren(HDKey.HARDENED_BIT - 1, 2));
+        assertThrows(IllegalArgumentException.class, () -> MASTER.deriveChildren(0xFFFFFFFF, 2));
+        assertEquals(1, MASTER.deriveChildren(0xFFFFFFFF, 1).size());
+        assertEquals(0, MASTER.deriveChildren(HDKey.HARDENED_BIT, 0).size());
+    }
+
+    private static void assertSameKey(HDKey expected, HDKey actual) {
+        assertEquals(expected.getChildNumber(), actual.getChildNumber());
+        assertEquals(expected.getDepth(), actual.getDepth());
+        assertEquals(expected.getParentFingerprint(), actual.getParentFingerprint());
+        assertArrayEquals(expected.getChainCode(), actual.getChainCode());
+        assertArrayEquals(expected.getRawPrivateKey(), actual.getRawPrivateKey());
+        assertArrayEquals(expected.getCompressedPublicKey(), actual.getCompressedPublicKey());
+    }
+}
@@ -0,0 +1,277 @@
+/*
+ * chenhx
+ * Copyright (C) 2013-2022 All Rights Reserved.
+ */
+package com.datacbc.wallet;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * @author chenhx
+ * @version 0.0.1
+ * @className PubkeyHashSetTest.java
+ * @date 2026-10-18 10:59
+ * @description 与 HashSet 对照的随机增删查（多次扩容、全 0 hash、同一探测链上的冲突 key），扫描结果与 contains 一致，写入时的并发读
+ */
+class PubkeyHashSetTest {
+
+    private static final int HASH_LENGTH = AddressDeriver.PUBKEY_HASH_LENGTH;
+
+    @Test
+    void randomOperationsMatchHashSet() {
+        Random random = new Random(20221018L);
+        List<byte[]> keys = new ArrayList<>();
+        for (int i = 0; i < 3000; i++) {
+            keys.add(randomHash(random));
+        }
+        keys.add(new byte[HASH_LENGTH]);
+        // 后 12 字节相同的 key 落在同一个起始槽位，形成长探测链；尾部全 1 时起始槽位是最后一个，探测链会绕回表头
+        keys.addAll(collidingHashes(random, 0x0102030405060708L, 0x0A0B0C0D, 64));
+        keys.addAll(collidingHashes(random, 0L, -1, 64));
+        // 部分字段为 0 的 key 不能与空槽位混淆
+        keys.add(hashOf(0L, 0L, 1));
+        keys.add(hashOf(1L, 0L, 0));
+        keys.add(hashOf(0L, 1L, 0));
+
+        PubkeyHashSet set = new PubkeyHashSet(1);
+        Set<ByteBuffer> reference = new HashSet<>();
+        int initialCapacity = set.capacity();
+        int resizes = 0;
+        for (int op = 0; op < 200_000; op++) {
+            byte[] key = keys.get(random.nextInt(keys.size()));
+            ByteBuffer wrapped = ByteBuffer.wrap(key);
+            // 前半程偏向添加以触发多次扩容，后半程偏向删除以覆盖后移删除
+            int addPercent = op < 100_000 ? 60 : 30;
+            int roll = random.nextInt(100);
+            int capacity = set.capacity();
+            if (roll < addPercent) {
+                assertEquals(reference.add(wrapped), set.add(key));
+            } else if (roll < addPercent + 30) {
+                assertEquals(reference.remove(wrapped), set.remove(key));
+            } else {
+                assertEquals(reference.contains(wrapped), set.contains(key));
+            }
+            if (set.capacity() != capacity) {
+                resizes++;
+            }
+            assertEquals(reference.size(), set.size());
+        }
+        assertTrue(resizes >= 5, "resizes=" + resizes + ", initial capacity=" + initialCapacity);
+        for (byte[] key : keys) {
+            assertEquals(reference.contains(ByteBuffer.wrap(key)), set.contains(key));
+        }
+        assertScanAgrees(set, keys);
+    }
+
+    @Test
+    void zeroHashIsTrackedSeparately() {
+        PubkeyHashSet set = new PubkeyHashSet();
+        byte[] zero = new byte[HASH_LENGTH];
+        assertFalse(set.contains(zero));
+        assertTrue(set.add(zero));
+        assertFalse(set.add(zero));
+        assertEquals(1, set.size());
+        assertTrue(set.contains(zero));
+        assertTrue(set.contains(Address.fromPubkeyHash(zero)));
+        // 带偏移量的读取
+        byte[] padded = new byte[HASH_LENGTH + 5];
+        Arrays.fill(padded, 0, 5, (byte) 0x7F);
+        assertTrue(set.contains(padded, 5));
+
+        assertTrue(set.add(hashOf(0L, 0L, 1)));
+        assertEquals(2, set.size());
+        assertTrue(set.remove(zero));
+        assertFalse(set.remove(zero));
+        assertFalse(set.contains(zero));
+        assertTrue(set.contains(hashOf(0L, 0L, 1)));
+        assertEquals(1, set.size());
+
+        set.add(zero);
+        set.clear();
+        assertTrue(set.isEmpty());
+        assertFalse(set.contains(zero));
+    }
+
+    @Test
+    void backwardShiftKeepsCollidingChainReachable() {
+        Random random = new Random(7L);
+        // 起始槽位为最后一个，整条链绕回表头
+        List<byte[]> chain = collidingHashes(random, 0L, -1, 200);
+        PubkeyHashSet set = new PubkeyHashSet(chain.size());
+        int capacity = set.capacity();
+        assertEquals(chain.size(), set.addAll(chain));
+        assertEquals(capacity, set.capacity());
+
+        List<byte[]> order = new ArrayList<>(chain);
+        Collections.shuffle(order, random);
+        Set<ByteBuffer> remaining = new HashSet<>();
+        for (byte[] key : chain) {
+            remaining.add(ByteBuffer.wrap(key));
+        }
+        for (byte[] removed : order) {
+            assertTrue(set.remove(removed));
+            remaining.remove(ByteBuffer.wrap(removed));
+            // 每次删除后链上剩余的 key 都能找到
+            for (byte[] key : chain) {
+                assertEquals(remaining.contains(ByteBuffer.wrap(key)), set.contains(key));
+            }
+        }
+        assertTrue(set.isEmpty());
+        // 删除后重新添加
+        assertEquals(chain.size(), set.addAll(chain));
+        assertEquals(0, set.addAll(chain));
+        for (byte[] key : chain) {
+            assertTrue(set.contains(key));
+        }
+    }
+
+    @Test
+    void scanAgreesWithContains() {
+        Random random = new Random(11L);
+        PubkeyHashSet set = new PubkeyHashSet();
+        List<byte[]> queries = new ArrayList<>();
+        // 超过单任务上限 1024，走并行路径
+        for (int i = 0; i < 5000; i++) {
+            byte[] key = randomHash(random);
+            if (i % 3 == 0) {
+                set.add(key);
+            }
+            queries.add(key);
+        }
+        queries.add(new byte[HASH_LENGTH]);
+        set.add(new byte[HASH_LENGTH]);
+        assertScanAgrees(set, queries);
+
+        // 长度不对或为 null 的项视为不存在
+        List<byte[]> invalid = new ArrayList<>(queries.subList(0, 10));
+        invalid.add(null);
+        invalid.add(new byte[HASH_LENGTH - 1]);
+        BitSet result = set.scan(invalid);
+        assertFalse(result.get(10));
+        assertFalse(result.get(11));
+
+        List<byte[]> publicKeys = new ArrayList<>();
+        Set<ByteBuffer> expected = new HashSet<>();
+        for (int i = 0; i < 3000; i++) {
+            byte[] publicKey = new byte[65];
+            random.nextBytes(publicKey);
+            publicKeys.add(publicKey);
+            if (i % 4 == 0) {
+                byte[] pubkeyHash = Wallet.getPubkeyHashByPubkey(publicKey);
+                set.add(pubkeyHash);
+                expected.add(ByteBuffer.wrap(pubkeyHash));
+            }
+        }
+        BitSet scanned = set.scanPublicKeys(publicKeys);
+        for (int i = 0; i < publicKeys.size(); i++) {
+            assertEquals(expected.contains(ByteBuffer.wrap(Wallet.getPubkeyHashByPubkey(publicKeys.get(i)))), scanned.get(i));
+        }
+    }
+
+    @Test
+    void readersSeeStableKeysDuringResizes() throws Exception {
+        Random random = new Random(3L);
+        PubkeyHashSet set = new PubkeyHashSet(1);
+        List<byte[]> present = new ArrayList<>();
+        List<byte[]> absent = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            byte[] key = randomHash(random);
+            set.add(key);
+            present.add(key);
+            absent.add(randomHash(random));
+        }
+        List<byte[]> churn = new ArrayList<>();
+        for (int i = 0; i < 50_000; i++) {
+            churn.add(randomHash(random));
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(3);
+        AtomicBoolean writing = new AtomicBoolean(true);
+        try {
+            Future<?> writer = executor.submit(() -> {
+                // 反复添加、删除其他 key，期间多次扩容和后移删除
+                for (int round = 0; round < 3; round++) {
+                    for (byte[] key : churn) {
+                        set.add(key);
+                    }
+                    for (byte[] key : churn) {
+                        set.remove(key);
+                    }
+                }
+                writing.set(false);
+            });
+            List<Future<?>> readers = new ArrayList<>();
+            for (int r = 0; r < 2; r++) {
+                readers.add(executor.submit(() -> {
+                    while (writing.get()) {
+                        for (byte[] key : present) {
+                            assertTrue(set.contains(key));
+                        }
+                        for (byte[] key : absent) {
+                            assertFalse(set.contains(key));
+                        }
+                    }
+                }));
+            }
+            writer.get(120, TimeUnit.SECONDS);
+            for (Future<?> reader : readers) {
+                reader.get(30, TimeUnit.SECONDS);
+            }
+        } finally {
+            writing.set(false);
+            executor.shutdownNow();
+        }
+        assertEquals(present.size(), set.size());
+    }
+
+    private static void assertScanAgrees(PubkeyHashSet set, List<byte[]> keys) {
+        BitSet scanned = set.scan(keys);
+        for (int i = 0; i < keys.size(); i++) {
+            assertEquals(set.contains(keys.get(i)), scanned.get(i), "index " + i);
+        }
+    }
+
+    private static byte[] randomHash(Random random) {
+        byte[] hash = new byte[HASH_LENGTH];
+        random.nextBytes(hash);
+        return hash;
+    }
+
+    /**
+     * 后 12 字节（决定起始槽位）相同、前 8 字节不同的 key
+     */
+    private static List<byte[]> collidingHashes(Random random, long b, int c, int count) {
+        List<byte[]> hashes = new ArrayList<>(count);
+        Set<Long> seen = new HashSet<>();
+        while (hashes.size() < count) {
+            long a = random.nextLong();
+            if (a != 0 && seen.add(a)) {
+                hashes.add(hashOf(a, b, c));
+            }
+        }
+        return hashes;
+    }
+
+    private static byte[] hashOf(long a, long b, int c) {
+        return ByteBuffer.allocate(HASH_LENGTH).putLong(a).putLong(b).putInt(c).array();
+    }
+}
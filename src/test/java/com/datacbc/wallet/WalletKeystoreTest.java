@@ -0,0 +1,245 @@
+/*
+ * chenhx
+ * Copyright (C) 2013-2022 All Rights Reserved.
+ */
+package com.datacbc.wallet;
+
+import com.datacbc.util.AESUtils;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import javax.crypto.AEADBadTagException;
+import javax.crypto.SecretKey;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * @author chenhx
+ * @version 0.0.1
+ * @className WalletKeystoreTest.java
+ * @date 2026-10-18 10:58
+ * @description 加密钱包文件：读写往返、错误密钥、记录和索引被篡改、重复公钥、空文件、关闭后访问、并发写入
+ */
+class WalletKeystoreTest {
+
+    private static final int WALLETS = 40;
+    /**
+     * 与 WalletKeystore 的文件头一致：magic、version、count、reserved、indexOffset，之后是密钥校验块
+     */
+    private static final int HEADER_LENGTH = 24 + AESUtils.GCM_NONCE_LENGTH + 16 + AESUtils.GCM_TAG_BITS / 8;
+    private static final int INDEX_ENTRY_LENGTH = 32;
+
+    private static final List<Wallet> wallets = new ArrayList<>();
+    private static SecretKey key;
+
+    @TempDir
+    Path dir;
+
+    @BeforeAll
+    static void generateWallets() throws Exception {
+        key = AESUtils.generateKey(256);
+        for (int i = 0; i < WALLETS; i++) {
+            wallets.add(Wallet.generate());
+        }
+    }
+
+    @Test
+    void writeOpenRoundTrip() throws Exception {
+        Path path = dir.resolve("wallets.dat");
+        WalletKeystore.write(path, wallets, key);
+        try (WalletKeystore keystore = WalletKeystore.open(path, key)) {
+            assertEquals(WALLETS, keystore.size());
+            for (Wallet wallet : wallets) {
+                Address address = Address.ofPublicKey(wallet.getPublicKey());
+                assertTrue(keystore.contains(address));
+                assertArrayEquals(wallet.getPrivateKey(), keystore.get(address).getPrivateKey());
+                assertArrayEquals(wallet.getPrivateKey(), keystore.get(address.toString()).getPrivateKey());
+            }
+            assertNull(keystore.get(Address.ofPublicKey(Wallet.generate().getPublicKey())));
+
+            Map<Address, byte[]> expected = new HashMap<>();
+            for (Wallet wallet : wallets) {
+                expected.put(Address.ofPublicKey(wallet.getPublicKey()), wallet.getPrivateKey());
+            }
+            List<Wallet> unlocked = keystore.unlockAll();
+            assertEquals(WALLETS, unlocked.size());
+            for (int i = 0; i < unlocked.size(); i++) {
+                Address address = Address.ofPublicKey(unlocked.get(i).getPublicKey());
+                // 按公钥hash排序
+                assertEquals(keystore.addressAt(i), address);
+                if (i > 0) {
+                    assertTrue(keystore.addressAt(i - 1).compareTo(address) < 0);
+                }
+                assertArrayEquals(expected.get(address), unlocked.get(i).getPrivateKey());
+            }
+        }
+    }
+
+    @Test
+    void wrongKeyFailsAtOpen() throws Exception {
+        Path path = dir.resolve("wallets.dat");
+        WalletKeystore.write(path, wallets, key);
+        SecretKey wrongKey = AESUtils.generateKey(256);
+        assertThrows(AEADBadTagException.class, () -> WalletKeystore.open(path, wrongKey));
+    }
+
+    @Test
+    void flippedRecordByteFailsUnlock() throws Exception {
+        Path path = dir.resolve("wallets.dat");
+        WalletKeystore.write(path, wallets, key);
+        // 改动第一条记录中的一个字节，索引不变，打开仍然成功
+        flipByte(path, HEADER_LENGTH + 20);
+        try (WalletKeystore keystore = WalletKeystore.open(path, key)) {
+            int failures = 0;
+            for (int i = 0; i < keystore.size(); i++) {
+                try {
+                    keystore.unlock(i);
+                } catch (AEADBadTagException e) {
+                    failures++;
+                }
+            }
+            assertEquals(1, failures);
+            assertThrows(AEADBadTagException.class, keystore::unlockAll);
+        }
+    }
+
+    @Test
+    void tamperedIndexFailsAtOpen() throws Exception {
+        Path path = dir.resolve("wallets.dat");
+        WalletKeystore.write(path, wallets, key);
+        long size = Files.size(path);
+        flipByte(path, size - INDEX_ENTRY_LENGTH + 3);
+        assertThrows(AEADBadTagException.class, () -> WalletKeystore.open(path, key));
+    }
+
+    @Test
+    void droppedIndexEntryFailsAtOpen() throws Exception {
+        Path path = dir.resolve("wallets.dat");
+        WalletKeystore.write(path, wallets, key);
+        // 删掉最后一个索引项并同步修改钱包数，文件结构仍然自洽，只能靠认证发现
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            ByteBuffer count = ByteBuffer.allocate(4);
+            channel.read(count, 8);
+            count.flip();
+            int n = count.getInt();
+            count.clear();
+            count.putInt(n - 1).flip();
+            channel.write(count, 8);
+            channel.truncate(channel.size() - INDEX_ENTRY_LENGTH);
+        }
+        assertThrows(AEADBadTagException.class, () -> WalletKeystore.open(path, key));
+    }
+
+    @Test
+    void duplicatePublicKeyKeepsFirstWallet() throws Exception {
+        Wallet first = wallets.get(0);
+        // 公钥相同、私钥不同，便于区分保留的是哪一个
+        Wallet duplicate = Wallet.of(wallets.get(1).getPrivateKey(), first.getPublicKey());
+        Path path = dir.resolve("wallets.dat");
+        WalletKeystore.write(path, Arrays.asList(first, wallets.get(2), duplicate), key);
+        try (WalletKeystore keystore = WalletKeystore.open(path, key)) {
+            assertEquals(2, keystore.size());
+            Wallet kept = keystore.get(Address.ofPublicKey(first.getPublicKey()));
+            assertArrayEquals(first.getPrivateKey(), kept.getPrivateKey());
+            assertEquals(2, keystore.unlockAll().size());
+        }
+    }
+
+    @Test
+    void emptyKeystore() throws Exception {
+        Path path = dir.resolve("wallets.dat");
+        WalletKeystore.write(path, Collections.emptyList(), key);
+        assertEquals(HEADER_LENGTH, Files.size(path));
+        try (WalletKeystore keystore = WalletKeystore.open(path, key)) {
+            assertEquals(0, keystore.size());
+            assertTrue(keystore.unlockAll().isEmpty());
+            Address address = Address.ofPublicKey(wallets.get(0).getPublicKey());
+            assertFalse(keystore.contains(address));
+            assertNull(keystore.get(address));
+        }
+        assertThrows(AEADBadTagException.class, () -> WalletKeystore.open(path, AESUtils.generateKey(256)));
+    }
+
+    @Test
+    void closedKeystoreRejectsReads() throws Exception {
+        Path path = dir.resolve("wallets.dat");
+        WalletKeystore.write(path, wallets, key);
+        WalletKeystore keystore = WalletKeystore.open(path, key);
+        Address address = keystore.addressAt(0);
+        keystore.close();
+        assertThrows(IllegalStateException.class, () -> keystore.get(address));
+        assertThrows(IllegalStateException.class, () -> keystore.unlock(0));
+        assertThrows(IllegalStateException.class, keystore::unlockAll);
+        assertThrows(IllegalStateException.class, () -> keystore.contains(address));
+    }
+
+    @Test
+    void concurrentWritersDoNotShareTempFile() throws Exception {
+        Path path = dir.resolve("wallets.dat");
+        List<Wallet> firstHalf = wallets.subList(0, WALLETS / 2);
+        List<Wallet> secondHalf = wallets.subList(WALLETS / 2, WALLETS);
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            for (int round = 0; round < 10; round++) {
+                Future<?> a = executor.submit(() -> {
+                    WalletKeystore.write(path, firstHalf, key);
+                    return null;
+                });
+                Future<?> b = executor.submit(() -> {
+                    WalletKeystore.write(path, secondHalf, key);
+                    return null;
+                });
+                a.get();
+                b.get();
+                // 最终文件是其中一次完整的写入
+                try (WalletKeystore keystore = WalletKeystore.open(path, key)) {
+                    assertEquals(WALLETS / 2, keystore.size());
+                    Wallet wallet = keystore.unlock(0);
+                    List<Wallet> written = keystore.contains(Address.ofPublicKey(firstHalf.get(0).getPublicKey()))
+                            ? firstHalf : secondHalf;
+                    assertTrue(written.stream().anyMatch(w -> Arrays.equals(w.getPrivateKey(), wallet.getPrivateKey())));
+                }
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        // 没有残留的临时文件
+        try (Stream<Path> files = Files.list(dir)) {
+            assertEquals(Collections.singletonList(path), files.collect(Collectors.toList()));
+        }
+    }
+
+    private static void flipByte(Path path, long position) throws Exception {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            ByteBuffer b = ByteBuffer.allocate(1);
+            channel.read(b, position);
+            b.flip();
+            byte value = b.get();
+            b.clear();
+            b.put((byte) (value ^ 0x01)).flip();
+            channel.write(b, position);
+        }
+    }
+}
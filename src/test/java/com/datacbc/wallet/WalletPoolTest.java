@@ -0,0 +1,97 @@
+/*
+ * chenhx
+ * Copyright (C) 2013-2022 All Rights Reserved.
+ */
+package com.datacbc.wallet;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * @author chenhx
+ * @version 0.0.1
+ * @className WalletPoolTest.java
+ * @date 2026-10-18 11:03
+ * @description 钱包池：池为空时同步生成并计数，低于低水位时补充到容量，关闭后不再补充
+ */
+class WalletPoolTest {
+
+    private static final long TIMEOUT_MILLIS = 30_000;
+
+    @Test
+    void emptyPoolFallsBackToGenerating() throws Exception {
+        // 低水位为 0，取空后不会触发补充
+        try (WalletPool pool = new WalletPool(2, 0, 1)) {
+            awaitTrue(() -> pool.depth() == 2);
+            assertNotNull(pool.take());
+            assertNotNull(pool.take());
+            assertEquals(0, pool.fallbackCount());
+            assertEquals(0, pool.depth());
+
+            Wallet wallet = pool.take();
+            assertNotNull(wallet.getPrivateKey());
+            assertEquals(1, pool.fallbackCount());
+            assertEquals(3, pool.takeCount());
+            assertEquals(1, pool.refillCount());
+            assertEquals(2, pool.refilledWallets());
+        }
+    }
+
+    @Test
+    void dropBelowLowWaterMarkRefillsToCapacity() throws Exception {
+        try (WalletPool pool = new WalletPool(8, 4, 1)) {
+            awaitTrue(() -> pool.depth() == 8 && pool.refilledWallets() == 8);
+            assertEquals(1, pool.refillCount());
+            // 取到恰好等于低水位，不触发补充
+            for (int i = 0; i < 4; i++) {
+                pool.take();
+            }
+            Thread.sleep(200);
+            assertEquals(1, pool.refillCount());
+            assertEquals(4, pool.depth());
+
+            // 低于低水位，后台补充回容量
+            pool.take();
+            awaitTrue(() -> pool.depth() == 8 && pool.refilledWallets() == 13);
+            assertEquals(2, pool.refillCount());
+            assertEquals(0, pool.fallbackCount());
+            assertEquals(5, pool.takeCount());
+            assertTrue(pool.refillRate() > 0);
+        }
+    }
+
+    @Test
+    void closeStopsRefillAndClearsQueue() throws Exception {
+        WalletPool pool = new WalletPool(50, 25, 2);
+        awaitTrue(() -> pool.depth() > 0);
+        pool.close();
+        assertEquals(0, pool.depth());
+        // 关闭时正在生成的钱包也不会留在队列中；补充任务结束时才累加生成数，结束后不再变化
+        Thread.sleep(300);
+        assertEquals(0, pool.depth());
+        long refilled = pool.refilledWallets();
+        Thread.sleep(200);
+        assertEquals(refilled, pool.refilledWallets());
+        assertEquals(0, pool.depth());
+
+        long refills = pool.refillCount();
+        assertNotNull(pool.take());
+        assertEquals(1, pool.fallbackCount());
+        Thread.sleep(100);
+        assertEquals(refills, pool.refillCount());
+        assertEquals(0, pool.depth());
+    }
+
+    private static void awaitTrue(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + TIMEOUT_MILLIS;
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.currentTimeMillis() < deadline, "timed out");
+            Thread.sleep(5);
+        }
+    }
+}